@@ -0,0 +1,91 @@
+package com.example.studentsystemweb.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.studentsystemweb.event.GradesChangedEvent;
+import com.example.studentsystemweb.service.AnalyticsRollups;
+import com.example.studentsystemweb.service.AnalyticsSnapshot;
+import com.example.studentsystemweb.service.DataVersion;
+import com.example.studentsystemweb.service.GroupRollups;
+import com.example.studentsystemweb.service.TeacherService;
+
+/**
+ * Страница /teacher/analytics: один снимок против полного набора геттеров.
+ * snapshot — сборка снимка на новой версии данных (версия сдвигается перед
+ * каждым вызовом) из накопленного состояния AnalyticsRollups, без запросов к базе.
+ * getterSet — геттеры на одной версии, т.е. из кешированного снимка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AnalyticsBenchmark {
+
+    private static final GradesChangedEvent CHANGE = new GradesChangedEvent(0, "", Map.of());
+
+    private TeacherService teacherService;
+    private DataVersion dataVersion;
+
+    @Setup(Level.Trial)
+    public void setup(CohortState cohort) {
+        GroupRollups rollups = new GroupRollups(cohort.studentRepository, cohort.finalsRepository);
+        rollups.build();
+        AnalyticsRollups analytics = new AnalyticsRollups(cohort.studentRepository, cohort.finalsRepository,
+                cohort.attendanceRepository, rollups);
+        analytics.build();
+        dataVersion = new DataVersion();
+        teacherService = new TeacherService(cohort.studentRepository, cohort.finalsRepository, rollups, analytics, dataVersion);
+    }
+
+    @Benchmark
+    public AnalyticsSnapshot snapshot() {
+        dataVersion.onGradesChanged(CHANGE);
+        return teacherService.getAnalytics();
+    }
+
+    @Benchmark
+    public void groupSeries(Blackhole bh) {
+        bh.consume(teacherService.getGroupLabels());
+        bh.consume(teacherService.getGroupValues());
+        bh.consume(teacherService.getAbsByGroupValues());
+    }
+
+    @Benchmark
+    public void getterSet(Blackhole bh) {
+        bh.consume(teacherService.hasFinals());
+        bh.consume(teacherService.getOverallAverage());
+        bh.consume(teacherService.countStudentsWithFinals());
+        bh.consume(teacherService.getSubjectsCount());
+        bh.consume(teacherService.getPieData());
+        bh.consume(teacherService.getPieLabels());
+        bh.consume(teacherService.getSubjectsLabels());
+        bh.consume(teacherService.getSubjectsValues());
+        bh.consume(teacherService.getGroupLabels());
+        bh.consume(teacherService.getGroupValues());
+        bh.consume(teacherService.getAbsByGroupLabels());
+        bh.consume(teacherService.getAbsByGroupValues());
+        bh.consume(teacherService.getBestGroupLabel());
+        bh.consume(teacherService.getBestGroupValue());
+        bh.consume(teacherService.getHistogramLabels());
+        bh.consume(teacherService.getHistogramValues());
+        bh.consume(teacherService.getTopStudents());
+        bh.consume(teacherService.getLowStudentsList());
+        bh.consume(teacherService.getAbsentLeaders());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.studentsystemweb.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.example.studentsystemweb.repository.AttendanceRepository;
+import com.example.studentsystemweb.repository.FinalsRepository;
+import com.example.studentsystemweb.repository.GradeRepository;
+import com.example.studentsystemweb.repository.StudentRepository;
+import com.example.studentsystemweb.tools.CohortGenerator;
+
+/**
+ * Файловая SQLite-база с синтетической когортой (CohortGenerator, по 25 студентов в группе).
+ *
+ * Файл кешируется во временном каталоге по (students, subjects) — генерация
+ * детерминирована, поэтому повторные запуски и форки берут готовую базу.
+ * Кешированный файл бенчмарки только читают; пишущим нужен WritableCohortState.
+ */
+@State(Scope.Benchmark)
+public class CohortState {
+
+    @Param({"100", "5000", "50000"})
+    public int students;
+
+    @Param({"2"})
+    public int subjects;
+
+    public SingleConnectionDataSource dataSource;
+    public JdbcTemplate jdbcTemplate;
+    public GradeRepository gradeRepository;
+    public FinalsRepository finalsRepository;
+    public StudentRepository studentRepository;
+    public AttendanceRepository attendanceRepository;
+
+    public String[] subjectNames;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws SQLException, IOException {
+        subjectNames = new String[subjects];
+        for (int i = 0; i < subjects; i++) subjectNames[i] = CohortGenerator.subjectName(i);
+
+        File fixture = new File(System.getProperty("java.io.tmpdir"),
+                "studentsystem-bench-v7-" + students + "-" + subjects + ".db");
+        if (!fixture.exists()) generate(fixture);
+
+        dataSource = open(trialFile(fixture));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        gradeRepository = new GradeRepository(jdbcTemplate);
+        finalsRepository = new FinalsRepository(jdbcTemplate);
+        studentRepository = new StudentRepository(jdbcTemplate);
+        attendanceRepository = new AttendanceRepository(jdbcTemplate);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() {
+        dataSource.destroy();
+        trialClosed();
+    }
+
+    /** Файл, который открывает прогон; здесь — сам кеш. */
+    protected File trialFile(File fixture) throws IOException {
+        return fixture;
+    }
+
+    /** Вызывается после закрытия базы прогона. */
+    protected void trialClosed() {
+    }
+
+    private void generate(File file) throws SQLException {
+        CohortGenerator.Spec d = CohortGenerator.Spec.defaults();
+        CohortGenerator.Spec spec = new CohortGenerator.Spec(
+                students / 25, 25, subjects,
+                d.absentRatio(), d.excusedRatio(),
+                d.attendancePerStudent(), d.progressPerStudent(), d.seed());
+
+        SingleConnectionDataSource ds = open(file);
+        try {
+            new CohortGenerator(spec).generate(ds.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            file.delete();
+            throw e;
+        } finally {
+            ds.destroy();
+        }
+    }
+
+    private static SingleConnectionDataSource open(File file) {
+        SingleConnectionDataSource ds = new SingleConnectionDataSource("jdbc:sqlite:" + file.getAbsolutePath(), true);
+        ds.setDriverClassName("org.sqlite.JDBC");
+        return ds;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.studentsystemweb.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.studentsystemweb.model.Grade;
+import com.example.studentsystemweb.model.SubjectFinal;
+
+/**
+ * Чтение итогов всей когорты: все строки EAV (бывшая загрузка GradeStore)
+ * против таблицы finals (строка на лист).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FinalsReadBenchmark {
+
+    @Benchmark
+    public List<Grade> allGradeRows(CohortState cohort) {
+        return cohort.gradeRepository.findAll();
+    }
+
+    @Benchmark
+    public List<SubjectFinal> finalsTable(CohortState cohort) {
+        return cohort.finalsRepository.findAll();
+    }
+}
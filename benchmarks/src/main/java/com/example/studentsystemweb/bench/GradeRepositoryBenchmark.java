@@ -0,0 +1,36 @@
+package com.example.studentsystemweb.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.studentsystemweb.model.JournalSheet;
+
+/**
+ * GradeRepository.upsertComponent по файловой SQLite (одна ячейка, автокоммит).
+ * Пишет — поэтому работает на копии базы (WritableCohortState).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GradeRepositoryBenchmark {
+
+    @Benchmark
+    public void upsertComponent(WritableCohortState cohort) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        cohort.gradeRepository.upsertComponent(
+                1 + rnd.nextInt(cohort.students),
+                cohort.subjectNames[rnd.nextInt(cohort.subjects)],
+                JournalSheet.CELL_KEYS[rnd.nextInt(JournalSheet.CELLS)],
+                (double) rnd.nextInt(101));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.studentsystemweb.bench;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.studentsystemweb.service.FinalScoreCalculator;
+import com.example.studentsystemweb.service.GradingService;
+
+/**
+ * GradingService.recalcTotals и getJournalTable для случайного студента когорты.
+ * recalcTotals пишет в finals — поэтому на копии базы (WritableCohortState).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GradingBenchmark {
+
+    private GradingService gradingService;
+
+    @Setup(Level.Trial)
+    public void setup(WritableCohortState cohort) {
+        gradingService = new GradingService(cohort.gradeRepository, cohort.finalsRepository,
+                new FinalScoreCalculator(), e -> {});
+    }
+
+    @Benchmark
+    public void recalcTotals(WritableCohortState cohort) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        gradingService.recalcTotals(
+                1 + rnd.nextInt(cohort.students),
+                cohort.subjectNames[rnd.nextInt(cohort.subjects)]);
+    }
+
+    @Benchmark
+    public Map<String, Double> getJournalTable(WritableCohortState cohort) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        return gradingService.getJournalTable(
+                1 + rnd.nextInt(cohort.students),
+                cohort.subjectNames[rnd.nextInt(cohort.subjects)]);
+    }
+}
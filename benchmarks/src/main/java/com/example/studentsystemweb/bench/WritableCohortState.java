@@ -0,0 +1,32 @@
+package com.example.studentsystemweb.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Когорта для пишущих бенчмарков: каждый прогон (trial) работает на своей
+ * копии кешированной базы, копия удаляется после прогона. Кеш остаётся
+ * нетронутым, и следующие запуски меряют тот же набор данных.
+ */
+@State(Scope.Benchmark)
+public class WritableCohortState extends CohortState {
+
+    private File copy;
+
+    @Override
+    protected File trialFile(File fixture) throws IOException {
+        copy = File.createTempFile("studentsystem-bench-trial-", ".db");
+        Files.copy(fixture.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    @Override
+    protected void trialClosed() {
+        if (copy != null) copy.delete();
+    }
+}
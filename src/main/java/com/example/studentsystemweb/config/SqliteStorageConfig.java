@@ -0,0 +1,116 @@
+package com.example.studentsystemweb.config;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Режим хранения SQLite для конкурентной нагрузки (app.sqlite.mode=wal).
+ *
+ * - WAL + synchronous/mmap_size/cache_size/busy_timeout на каждом соединении;
+ * - пул только для чтения (open_mode=READONLY) на все запросы вне пишущей транзакции;
+ * - единственное пишущее соединение: пул из одного соединения, остальные писатели
+ *   ждут его в очереди Hikari, поэтому SQLITE_BUSY между писателями не возникает.
+ *
+ * Маршрут выбирается по транзакции: пишущая (@Transactional без readOnly) — писатель,
+ * всё остальное — читатели. Поэтому все изменяющие методы репозиториев транзакционные.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sqlite.mode", havingValue = "wal")
+public class SqliteStorageConfig {
+
+    private static final String READER = "reader";
+    private static final String WRITER = "writer";
+
+    private static final int SQLITE_OPEN_READONLY = 0x01;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${app.sqlite.read-pool-size:0}")
+    private int readPoolSize;
+
+    @Value("${app.sqlite.synchronous:NORMAL}")
+    private String synchronous;
+
+    @Value("${app.sqlite.mmap-size:268435456}")
+    private long mmapSize;
+
+    @Value("${app.sqlite.cache-size:-65536}")
+    private int cacheSize;
+
+    @Value("${app.sqlite.busy-timeout:5000}")
+    private int busyTimeout;
+
+    @Value("${app.sqlite.write-wait-timeout:30000}")
+    private long writeWaitTimeout;
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource sqliteWriterDataSource() {
+        HikariConfig cfg = baseConfig("sqlite-writer");
+        cfg.setMaximumPoolSize(1);
+        cfg.setMinimumIdle(1);
+        cfg.setConnectionTimeout(writeWaitTimeout);
+        cfg.addDataSourceProperty("journal_mode", "WAL");
+        return new HikariDataSource(cfg);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource sqliteReaderDataSource(HikariDataSource sqliteWriterDataSource) {
+        // писатель создаётся первым и переводит файл в WAL (режим сохраняется в файле)
+        int size = readPoolSize > 0 ? readPoolSize : Runtime.getRuntime().availableProcessors();
+
+        HikariConfig cfg = baseConfig("sqlite-reader");
+        cfg.setMaximumPoolSize(size);
+        cfg.setReadOnly(true);
+        cfg.addDataSourceProperty("open_mode", String.valueOf(SQLITE_OPEN_READONLY));
+        return new HikariDataSource(cfg);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource sqliteWriterDataSource,
+                                 HikariDataSource sqliteReaderDataSource) {
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                boolean write = TransactionSynchronizationManager.isActualTransactionActive()
+                        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+                return write ? WRITER : READER;
+            }
+        };
+        routing.setTargetDataSources(Map.of(
+                READER, sqliteReaderDataSource,
+                WRITER, sqliteWriterDataSource
+        ));
+        routing.setDefaultTargetDataSource(sqliteReaderDataSource);
+        routing.afterPropertiesSet();
+
+        // соединение берётся при первом запросе, когда параметры транзакции уже известны
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private HikariConfig baseConfig(String poolName) {
+        HikariConfig cfg = new HikariConfig();
+        cfg.setPoolName(poolName);
+        cfg.setDriverClassName("org.sqlite.JDBC");
+        cfg.setJdbcUrl(url);
+        cfg.addDataSourceProperty("synchronous", synchronous);
+        cfg.addDataSourceProperty("mmap_size", String.valueOf(mmapSize));
+        cfg.addDataSourceProperty("cache_size", String.valueOf(cacheSize));
+        cfg.addDataSourceProperty("busy_timeout", String.valueOf(busyTimeout));
+        return cfg;
+    }
+}
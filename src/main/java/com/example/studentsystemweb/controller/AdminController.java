@@ -1,11 +1,28 @@
 package com.example.studentsystemweb.controller;
 
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.model.StudentPage;
 import com.example.studentsystemweb.service.AdminService;
+import com.example.studentsystemweb.service.DataVersion;
+import com.example.studentsystemweb.service.FragmentCache;
+import com.example.studentsystemweb.service.JournalBroadcaster;
+import com.example.studentsystemweb.service.ParallelLoader;
+import com.example.studentsystemweb.service.TotalsRecalcQueue;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 
 @Controller
@@ -13,43 +30,161 @@ import java.util.Map;
 public class AdminController {
 
     private final AdminService adminService;
-
-    public AdminController(AdminService adminService) {
+    private final DataVersion dataVersion;
+    private final FragmentCache fragmentCache;
+    private final TotalsRecalcQueue recalcQueue;
+    private final JournalBroadcaster broadcaster;
+    private final ParallelLoader loader;
+
+    public AdminController(AdminService adminService,
+                           DataVersion dataVersion,
+                           FragmentCache fragmentCache,
+                           TotalsRecalcQueue recalcQueue,
+                           JournalBroadcaster broadcaster,
+                           ParallelLoader loader) {
         this.adminService = adminService;
+        this.dataVersion = dataVersion;
+        this.fragmentCache = fragmentCache;
+        this.recalcQueue = recalcQueue;
+        this.broadcaster = broadcaster;
+        this.loader = loader;
     }
 
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final String DASHBOARD_FRAGMENTS = "fragments/admin-dashboard";
+
     private boolean isAdmin(HttpSession session) {
         Object role = session.getAttribute("role");
         return role != null && role.equals("ADMIN");
     }
 
     @GetMapping("/dashboard")
-    public String dashboard(Model model, HttpSession session) {
+    public String dashboard(@RequestParam(required = false) Integer after,
+                            @RequestParam(required = false) Integer before,
+                            @RequestParam(defaultValue = "50") int size,
+                            Model model, HttpSession session, Locale locale) {
         if (!isAdmin(session)) return "redirect:/login";
 
-        Map<Integer, Double> avgByStudent = adminService.averageByStudent();
+        StudentPage page = adminService.getStudentsPage(after, before, clamp(size));
+        Map<Integer, Double> avgByStudent = adminService.averageByStudent(
+                page.students().stream().map(Student::getId).toList());
 
-        // Глобальная аналитика
-        model.addAttribute("students", adminService.getAllStudents());
+        model.addAttribute("students", page.students());
+        model.addAttribute("page", page);
         model.addAttribute("avgByStudent", avgByStudent);
-        model.addAttribute("top", adminService.getTopStudents(5));
-        model.addAttribute("worst", adminService.getWorstStudents(5));
-        model.addAttribute("globalAvg", adminService.getGlobalAverage());
 
-        // Средний балл по группам
-        model.addAttribute("groupAverages", adminService.groupAverages());
+        // Глобальная аналитика и график групп — из FragmentCache, считаются только при промахе
+        Map<String, String> fragments = new HashMap<>();
+        fragments.put("overview", fragmentCache.render(DASHBOARD_FRAGMENTS, "overview", "", locale, () -> {
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("studentsCount", adminService.countStudents());
+            vars.put("top", adminService.getTopStudents(5));
+            vars.put("worst", adminService.getWorstStudents(5));
+            vars.put("globalAvg", adminService.getGlobalAverage());
+            return vars;
+        }));
+        fragments.put("groupChartData", fragmentCache.render(DASHBOARD_FRAGMENTS, "groupChartData", "", locale,
+                () -> Map.of("groupAverages", adminService.groupAverages())));
+        model.addAttribute("fragments", fragments);
 
         return "admin-dashboard";
     }
 
+    // JSON-аналитика дашборда; ETag = версия данных, 304 — без обращения к БД
+    @GetMapping("/analytics.json")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> analyticsJson(HttpSession session, WebRequest request) {
+        if (!isAdmin(session)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        String etag = dataVersion.etag();
+        if (request.checkNotModified(etag)) return null;
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("studentsCount", adminService.countStudents());
+        body.put("globalAvg", adminService.getGlobalAverage());
+        body.put("top", adminService.getTopStudents(5));
+        body.put("worst", adminService.getWorstStudents(5));
+        body.put("groupAverages", adminService.groupAverages());
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+    // Метрики кешей и фоновых очередей (для наблюдения, без кеширования ответа)
+    @GetMapping("/metrics.json")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> metricsJson(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        Map<String, Object> fragments = new LinkedHashMap<>();
+        fragments.put("hits", fragmentCache.getHits());
+        fragments.put("misses", fragmentCache.getMisses());
+        fragments.put("hitRate", fragmentCache.getHitRate());
+        fragments.put("evictions", fragmentCache.getEvictions());
+        fragments.put("size", fragmentCache.getSize());
+        fragments.put("chars", fragmentCache.getChars());
+        fragments.put("maxChars", fragmentCache.getMaxChars());
+        fragments.put("renderMillis", fragmentCache.getRenderMillis());
+
+        Map<String, Object> recalc = new LinkedHashMap<>();
+        recalc.put("queueDepth", recalcQueue.getQueueDepth());
+        recalc.put("inFlight", recalcQueue.getInFlight());
+        recalc.put("processed", recalcQueue.getProcessed());
+        recalc.put("coalesced", recalcQueue.getCoalesced());
+        recalc.put("failures", recalcQueue.getFailures());
+        recalc.put("retries", recalcQueue.getRetries());
+        recalc.put("dropped", recalcQueue.getDropped());
+        recalc.put("maxLagMillis", recalcQueue.getMaxLagMillis());
+
+        Map<String, Object> sse = new LinkedHashMap<>();
+        sse.put("subscribers", broadcaster.getSubscribers());
+        sse.put("sent", broadcaster.getSent());
+        sse.put("dropped", broadcaster.getDropped());
+
+        Map<String, Object> fanout = new LinkedHashMap<>();
+        fanout.put("active", loader.getActive());
+        fanout.put("queued", loader.getQueued());
+        fanout.put("completed", loader.getCompleted());
+        fanout.put("timeouts", loader.getTimeouts());
+        fanout.put("callerRuns", loader.getCallerRuns());
+        fanout.put("maxTaskMillis", loader.getMaxTaskMillis());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("dataVersion", dataVersion.current());
+        body.put("fragments", fragments);
+        body.put("recalc", recalc);
+        body.put("sse", sse);
+        body.put("fanout", fanout);
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(body);
+    }
+
     @GetMapping("/students")
-    public String studentsPage(Model model, HttpSession session) {
+    public String studentsPage(@RequestParam(required = false) Integer after,
+                               @RequestParam(required = false) Integer before,
+                               @RequestParam(defaultValue = "50") int size,
+                               Model model, HttpSession session) {
         if (!isAdmin(session)) return "redirect:/login";
 
-        model.addAttribute("students", adminService.getAllStudents());
+        addStudentsPage(model, adminService.getStudentsPage(after, before, clamp(size)));
         return "admin-students";
     }
 
+    private void addStudentsPage(Model model, StudentPage page) {
+        model.addAttribute("students", page.students());
+        model.addAttribute("page", page);
+        model.addAttribute("studentsCount", adminService.countStudents());
+    }
+
+    private static int clamp(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
     @PostMapping("/students/add")
     public String addStudent(@RequestParam String fullname,
                              @RequestParam String groupName,
@@ -60,6 +195,22 @@ public class AdminController {
         return "redirect:/admin/students";
     }
 
+    @PostMapping("/students/import")
+    public String importStudents(@RequestParam("file") MultipartFile file,
+                                 Model model,
+                                 HttpSession session) {
+        if (!isAdmin(session)) return "redirect:/login";
+
+        try (InputStream in = file.getInputStream()) {
+            model.addAttribute("importResult", adminService.importStudents(in));
+        } catch (IOException | IllegalArgumentException ex) {
+            model.addAttribute("importError", ex.getMessage());
+        }
+
+        addStudentsPage(model, adminService.getStudentsPage(null, null, 50));
+        return "admin-students";
+    }
+
     @PostMapping("/students/delete/{id}")
     public String deleteStudent(@PathVariable int id,
                                 HttpSession session) {
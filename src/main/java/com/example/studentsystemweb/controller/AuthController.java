@@ -17,6 +17,9 @@ import java.time.LocalDateTime;
 @Controller
 public class AuthController {
 
+    // В списке привязки — только последние добавленные; остальных вводят по ID
+    private static final int LATEST_STUDENTS = 50;
+
     private final AuthService authService;
     private final AdminService adminService;
     private final LogService logService;
@@ -57,12 +60,13 @@ public class AuthController {
         session.setAttribute("userId", user.getId());
         session.setAttribute("role", user.getRole());
         session.setAttribute("studentId", user.getLinkedStudentId());
+        session.setAttribute("login", user.getLogin());
 
         // Последний вход
         session.setAttribute("lastLogin", LocalDateTime.now());
 
         // Логирование
-        logService.add("Пользователь '" + login + "' вошёл в систему");
+        logService.add(login, "Пользователь '" + login + "' вошёл в систему");
 
         // Переход по ролям
         return switch (user.getRole()) {
@@ -81,7 +85,8 @@ public class AuthController {
         Object role = session.getAttribute("role");
 
         if (role != null) {
-            logService.add("Пользователь (ID=" + id + ", роль=" + role + ") вышел из системы");
+            logService.add((String) session.getAttribute("login"),
+                    "Пользователь (ID=" + id + ", роль=" + role + ") вышел из системы");
         }
 
         session.invalidate();
@@ -93,7 +98,7 @@ public class AuthController {
     // -----------------------------------
     @GetMapping("/register")
     public String registerPage(Model model) {
-        model.addAttribute("students", adminService.getAllStudents());
+        model.addAttribute("students", adminService.getLatestStudents(LATEST_STUDENTS));
         return "register";
     }
 
@@ -111,13 +116,13 @@ public class AuthController {
             adminService.createUser(login, password, role, linkedStudentId);
 
             model.addAttribute("success", "Пользователь создан!");
-            logService.add("Создан новый аккаунт: '" + login + "' (роль=" + role + ")");
+            logService.add(login, "Создан новый аккаунт: '" + login + "' (роль=" + role + ")");
 
         } catch (RuntimeException ex) {
             model.addAttribute("error", ex.getMessage());
         }
 
-        model.addAttribute("students", adminService.getAllStudents());
+        model.addAttribute("students", adminService.getLatestStudents(LATEST_STUDENTS));
         return "register";
     }
 }
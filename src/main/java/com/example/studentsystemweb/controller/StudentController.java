@@ -3,7 +3,6 @@ package com.example.studentsystemweb.controller;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -14,12 +13,11 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import com.example.studentsystemweb.model.Attendance;
 import com.example.studentsystemweb.model.Grade;
 import com.example.studentsystemweb.model.ProgressRecord;
 import com.example.studentsystemweb.model.Student;
-import com.example.studentsystemweb.service.GradingService;
-import com.example.studentsystemweb.service.StudentService;
+import com.example.studentsystemweb.service.StudentDashboardView;
+import com.example.studentsystemweb.service.StudentViewService;
 
 import jakarta.servlet.http.HttpSession;
 
@@ -27,13 +25,10 @@ import jakarta.servlet.http.HttpSession;
 @RequestMapping("/student")
 public class StudentController {
 
-    private final StudentService studentService;
-    private final GradingService gradingService;
+    private final StudentViewService studentViewService;
 
-    public StudentController(StudentService studentService,
-                             GradingService gradingService) {
-        this.studentService = studentService;
-        this.gradingService = gradingService;
+    public StudentController(StudentViewService studentViewService) {
+        this.studentViewService = studentViewService;
     }
 
     private Integer getStudentId(HttpSession session) {
@@ -64,6 +59,12 @@ public class StudentController {
         return dt.format(fullFmt);
     }
 
+    private String formatAverage(Double avgRaw) {
+        return avgRaw == null
+                ? "0.00"
+                : String.format(Locale.US, "%.2f", avgRaw);
+    }
+
     // ==========================================
     // DASHBOARD
     // ==========================================
@@ -77,26 +78,21 @@ public class StudentController {
         if (studentId == null)
             return "redirect:/login";
 
-        Student student = studentService.getStudent(studentId);
+        StudentDashboardView view = studentViewService.load(studentId);
 
-        List<Grade> grades = studentService.getGrades(studentId);
-        List<ProgressRecord> progress = studentService.getProgress(studentId);
-        List<Attendance> attendance = studentService.getAttendance(studentId);
+        Student student = view.student();
 
-        Map<String, Double> subjectAverages = studentService.getSubjectAverages(studentId);
+        List<Grade> grades = view.grades();
+        List<ProgressRecord> progress = view.progress();
 
-        Double avgRaw = studentService.getAverage(studentId);
+        Map<String, Double> subjectAverages = view.subjectAverages();
 
-        String avgFormatted = avgRaw == null
-                ? "0.00"
-                : String.format(Locale.US, "%.2f", avgRaw);
+        String avgFormatted = formatAverage(view.average());
 
-        int present = studentService.countPresent(studentId);
-        int absent = studentService.countAbsent(studentId);
+        int present = view.present();
+        int absent = view.absent();
 
-        int attendancePercent =
-                (present + absent == 0) ? 0 :
-                        (int) Math.round(present * 100.0 / (present + absent));
+        int attendancePercent = view.attendancePercent();
 
         int gradesCount = grades.size();
         int progressCount = progress.size();
@@ -148,10 +144,12 @@ public class StudentController {
         if (studentId == null)
             return "redirect:/login";
 
-        Student student = studentService.getStudent(studentId);
+        StudentDashboardView view = studentViewService.loadWithJournal(studentId, subject);
 
-        List<String> subjects = studentService.getJournalSubjects(studentId);
-        if (subjects == null || subjects.isEmpty()) {
+        Student student = view.student();
+        List<String> subjects = view.subjects();
+
+        if (subjects.isEmpty()) {
             model.addAttribute("student", student);
             model.addAttribute("subjects", List.of());
             model.addAttribute("subject", null);
@@ -160,22 +158,11 @@ public class StudentController {
             return "student-journal";
         }
 
-        if (subject == null || !subjects.contains(subject))
-            subject = subjects.get(0);
-
-        Map<String, Double> table = gradingService.getJournalTable(studentId, subject);
-        if (table == null) table = new LinkedHashMap<>();
-
-        Double avgRaw = studentService.getAverage(studentId);
-        String avgFormatted = avgRaw == null
-                ? "0.00"
-                : String.format(Locale.US, "%.2f", avgRaw);
-
         model.addAttribute("student", student);
         model.addAttribute("subjects", subjects);
-        model.addAttribute("subject", subject);
-        model.addAttribute("table", table);
-        model.addAttribute("avg", avgFormatted);
+        model.addAttribute("subject", view.journalSubject());
+        model.addAttribute("table", view.journalTable());
+        model.addAttribute("avg", formatAverage(view.average()));
 
         return "student-journal";
     }
@@ -193,25 +180,22 @@ public class StudentController {
         if (studentId == null)
             return "redirect:/login";
 
-        Student stu = studentService.getStudent(studentId);
+        StudentDashboardView view = studentViewService.load(studentId);
 
-        Double avgRaw = studentService.getAverage(studentId);
-        String avgFormatted = avgRaw == null
-                ? "0.00"
-                : String.format(Locale.US, "%.2f", avgRaw);
+        Student stu = view.student();
+
+        String avgFormatted = formatAverage(view.average());
 
-        Map<String, Double> subjectAverages = studentService.getSubjectAverages(studentId);
-        List<Grade> grades = studentService.getGrades(studentId);
-        List<Attendance> att = studentService.getAttendance(studentId);
+        Map<String, Double> subjectAverages = view.subjectAverages();
+        List<Grade> grades = view.grades();
 
-        int present = studentService.countPresent(studentId);
-        int absent = studentService.countAbsent(studentId);
+        int present = view.present();
+        int absent = view.absent();
 
         model.addAttribute("student", stu);
         model.addAttribute("avg", avgFormatted);
         model.addAttribute("subjectAverages", subjectAverages);
         model.addAttribute("grades", grades);
-        model.addAttribute("attendance", att);
         model.addAttribute("present", present);
         model.addAttribute("absent", absent);
 
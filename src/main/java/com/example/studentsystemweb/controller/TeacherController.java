@@ -1,12 +1,22 @@
 package com.example.studentsystemweb.controller;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,11 +24,25 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.example.studentsystemweb.model.JournalSheet;
 import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.model.StudentPage;
+import com.example.studentsystemweb.service.AnalyticsSeries;
+import com.example.studentsystemweb.service.AnalyticsSnapshot;
+import com.example.studentsystemweb.service.DataVersion;
+import com.example.studentsystemweb.service.FragmentCache;
+import com.example.studentsystemweb.service.GradeExportService;
 import com.example.studentsystemweb.service.GradingService;
+import com.example.studentsystemweb.service.JournalBroadcaster;
+import com.example.studentsystemweb.service.ParallelLoader;
+import com.example.studentsystemweb.service.StudentSearchIndex;
 import com.example.studentsystemweb.service.TeacherService;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
 @Controller
@@ -27,11 +51,29 @@ public class TeacherController {
 
     private final TeacherService teacherService;
     private final GradingService gradingService;
+    private final GradeExportService exportService;
+    private final StudentSearchIndex searchIndex;
+    private final DataVersion dataVersion;
+    private final JournalBroadcaster broadcaster;
+    private final ParallelLoader loader;
+    private final FragmentCache fragmentCache;
 
     public TeacherController(TeacherService teacherService,
-                             GradingService gradingService) {
+                             GradingService gradingService,
+                             GradeExportService exportService,
+                             StudentSearchIndex searchIndex,
+                             DataVersion dataVersion,
+                             JournalBroadcaster broadcaster,
+                             ParallelLoader loader,
+                             FragmentCache fragmentCache) {
         this.teacherService = teacherService;
         this.gradingService = gradingService;
+        this.exportService = exportService;
+        this.searchIndex = searchIndex;
+        this.dataVersion = dataVersion;
+        this.broadcaster = broadcaster;
+        this.loader = loader;
+        this.fragmentCache = fragmentCache;
     }
 
     private boolean isTeacher(HttpSession session) {
@@ -44,39 +86,92 @@ public class TeacherController {
     // ======================
     @GetMapping("/dashboard")
     public String dashboard(@RequestParam(required = false) String group,
+                            @RequestParam(required = false) Integer after,
+                            @RequestParam(required = false) Integer before,
+                            @RequestParam(defaultValue = "50") int size,
                             Model model,
                             HttpSession session) {
 
         if (!isTeacher(session)) return "redirect:/login";
 
-        List<String> groups = teacherService.getAllGroups();
-        model.addAttribute("groups", groups);
+        if (group != null && group.isBlank()) group = null;
+        String g = group;
+        int pageSize = Math.max(1, Math.min(size, 500));
+
+        // Независимые загрузки — параллельно; страница ждёт самую медленную
+        CompletableFuture<List<String>> groupsF = loader.fork("groups", teacherService::getAllGroups);
+        CompletableFuture<StudentPage> pageF =
+                loader.fork("students", () -> teacherService.getStudentsPage(g, after, before, pageSize));
+        CompletableFuture<Integer> countF = loader.fork("count", () -> teacherService.countStudents(g));
+        // Сводка по всей когорте — снимок, посчитанный один раз на версию данных
+        CompletableFuture<AnalyticsSnapshot> analyticsF = loader.fork("analytics", teacherService::getAnalytics);
+
+        model.addAttribute("groups", loader.join(groupsF));
         model.addAttribute("selectedGroup", group == null ? "" : group);
 
-        List<Student> students =
-                (group == null || group.isBlank())
-                        ? teacherService.getStudents()
-                        : teacherService.getStudentsByGroup(group);
+        StudentPage page = loader.join(pageF);
+        List<Student> students = page.students();
 
         model.addAttribute("students", students);
+        model.addAttribute("page", page);
+        model.addAttribute("studentsCount", loader.join(countF));
 
-        Map<Integer, Double> allAvgs = teacherService.getFinalAveragesForAllStudents();
-        Set<Integer> visibleIds = students.stream().map(Student::getId).collect(Collectors.toSet());
-
-        Map<Integer, Double> avgByStudent = allAvgs.entrySet().stream()
-                .filter(e -> e.getValue() != null && visibleIds.contains(e.getKey()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        // Средние в таблице — только по id видимой страницы
+        model.addAttribute("avgByStudent",
+                teacherService.getFinalAverages(students.stream().map(Student::getId).toList()));
 
-        model.addAttribute("avgByStudent", avgByStudent);
+        AnalyticsSnapshot analytics = loader.join(analyticsF);
 
-        model.addAttribute("overallAvg", teacherService.getOverallAverage());
-        model.addAttribute("low", teacherService.getLowStudentsList());
-        model.addAttribute("absentLeaders", teacherService.getAbsentLeaders());
+        model.addAttribute("overallAvg", analytics.overallAverage());
+        model.addAttribute("low", analytics.lowStudents());
+        model.addAttribute("absentLeaders", analytics.absentLeaders());
 
         return "teacher-dashboard";
     }
 
 
+    // ======================
+    // ПОИСК (type-ahead)
+    // ======================
+    @GetMapping("/students/search")
+    @ResponseBody
+    public ResponseEntity<List<StudentSearchIndex.Hit>> search(@RequestParam(defaultValue = "") String q,
+                                                               @RequestParam(defaultValue = "10") int limit,
+                                                               HttpSession session) {
+
+        if (!isTeacher(session)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        return ResponseEntity.ok(searchIndex.search(q, Math.max(1, Math.min(limit, 50))));
+    }
+
+    // ======================
+    // EXPORT CSV (группа или вся когорта)
+    // ======================
+    @GetMapping("/export")
+    public void exportCsv(@RequestParam(required = false) String group,
+                          HttpSession session,
+                          HttpServletResponse response) throws IOException {
+
+        if (!isTeacher(session)) {
+            response.sendRedirect("/login");
+            return;
+        }
+
+        if (group != null && group.isBlank()) group = null;
+
+        String name = group == null ? "journal-all.csv" : "journal-" + group + ".csv";
+
+        response.setContentType("text/csv; charset=UTF-8");
+        response.setHeader("Content-Disposition",
+                "attachment; filename*=UTF-8''" + URLEncoder.encode(name, StandardCharsets.UTF_8).replace("+", "%20"));
+
+        Writer out = new BufferedWriter(
+                new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), 64 * 1024);
+        out.write('\uFEFF'); // BOM — чтобы Excel открыл кириллицу
+        exportService.exportCsv(group, out);
+        out.flush();
+    }
+
     // ======================
     // JOURNAL PAGE
     // ======================
@@ -121,56 +216,53 @@ public class TeacherController {
 
         if (!isTeacher(session)) return "redirect:/login";
 
-        String[] types = {"lecture", "sro", "lab"};
+        JournalSheet sheet = new JournalSheet();
 
-        for (int w = 1; w <= 15; w++) {
-            for (String t : types) {
-                String key = "week" + w + "_" + t;
-                process(id, subject, key, form.get(key), form.get(key + "_flag"));
-            }
-        }
+        for (int i = 0; i < JournalSheet.CELLS; i++) {
+            String key = JournalSheet.CELL_KEYS[i];
+            double flag = parseFlag(form.get(JournalSheet.CELL_FLAG_KEYS[i]));
 
-        for (String comp : new String[]{"rk1", "rk2", "exam"}) {
-            process(id, subject, comp, form.get(comp), form.get(comp + "_flag"));
+            sheet.setFlag(i, (byte) flag);
+            sheet.setValue(i, parseValue(form.get(key), flag));
         }
 
-        gradingService.recalcTotals(id, subject);
+        for (int i = 0; i < JournalSheet.EXAM_KEYS.length; i++) {
+            String key = JournalSheet.EXAM_KEYS[i];
+            double flag = parseFlag(form.get(JournalSheet.EXAM_FLAG_KEYS[i]));
 
-        try {
-            var field = teacherService.getClass().getDeclaredField("cache");
-            field.setAccessible(true);
-            field.set(teacherService, null);
-        } catch (Exception ignored) {}
+            sheet.setExamFlag(i, (byte) flag);
+            sheet.setExam(i, parseValue(form.get(key), flag));
+        }
+
+        gradingService.saveJournal(id, subject, sheet);
 
         return "redirect:/teacher/students/" + id + "/journal?subject=" +
                 URLEncoder.encode(subject, StandardCharsets.UTF_8);
     }
 
-    private void process(int id, String subject, String workType,
-                         String raw, String flag) {
+    private double parseFlag(String flag) {
 
         if (flag == null) flag = "0";
         flag = flag.trim();
 
-        double flagVal;
         try {
-            flagVal = Double.parseDouble(flag);
+            return Double.parseDouble(flag);
         } catch (Exception e) {
-            flagVal = 0.0;
+            return 0.0;
         }
+    }
 
-        gradingService.setFlagValue(id, subject, workType, flagVal);
+    private double parseValue(String raw, double flagVal) {
 
-        if (flagVal == 1.0) { gradingService.setComponent(id, subject, workType, -1.0); return; }
-        if (flagVal == 2.0) { gradingService.setComponent(id, subject, workType, -2.0); return; }
+        if (flagVal == 1.0) return -1.0;
+        if (flagVal == 2.0) return -2.0;
 
         try {
-            double v = (raw == null || raw.isBlank())
+            return (raw == null || raw.isBlank())
                     ? -1.0
                     : Double.parseDouble(raw.replace(",", "."));
-            gradingService.setComponent(id, subject, workType, v);
         } catch (Exception ignore) {
-            gradingService.setComponent(id, subject, workType, -1.0);
+            return -1.0;
         }
     }
 
@@ -178,54 +270,76 @@ public class TeacherController {
     // ======================
     // ANALYTICS
     // ======================
-    @GetMapping("/analytics")
-    public String analytics(HttpSession session, Model model) {
-
-        if (!isTeacher(session)) return "redirect:/login";
+    // SSE: дельты журнала (FINAL, средний студента и группы) после каждого пересчёта
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(HttpSession session) {
 
-        boolean hasFinals = teacherService.hasFinals();
-        model.addAttribute("hasFinals", hasFinals);
+        if (!isTeacher(session)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
 
-        if (!hasFinals) return "teacher-analytics";
+        return ResponseEntity.ok(broadcaster.subscribe());
+    }
 
-        // общие данные
-        model.addAttribute("groupAvg", teacherService.getOverallAverage());
-        model.addAttribute("studentsWithFinals", teacherService.countStudentsWithFinals());
-        model.addAttribute("subjectsCount", teacherService.getSubjectsCount());
+    // JSON-серии для графиков (без данных по каждому студенту); ETag = версия данных,
+    // 304 — без обращения к БД; 200 — из снимка, посчитанного один раз на версию
+    @GetMapping("/analytics.json")
+    @ResponseBody
+    public ResponseEntity<AnalyticsSeries> analyticsJson(HttpSession session, WebRequest request) {
 
-        // pie chart
-        model.addAttribute("pieData", teacherService.getPieData());
-        model.addAttribute("pieLabels", teacherService.getPieLabels());
+        if (!isTeacher(session)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
 
-        // subject chart
-        model.addAttribute("subjectsLabels", teacherService.getSubjectsLabels());
-        model.addAttribute("subjectsValues", teacherService.getSubjectsValues());
+        String etag = dataVersion.etag();
+        if (request.checkNotModified(etag)) return null;
 
-        // NEW — group charts
-        model.addAttribute("groupLabels", teacherService.getGroupLabels());
-        model.addAttribute("groupValues", teacherService.getGroupValues());
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(teacherService.getAnalyticsSeries());
+    }
 
-        model.addAttribute("absByGroupLabels", teacherService.getAbsByGroupLabels());
-        model.addAttribute("absByGroupValues", teacherService.getAbsByGroupValues());
+    @GetMapping("/analytics")
+    public String analytics(HttpSession session, Model model, Locale locale) {
 
-        // NEW — best group
-        model.addAttribute("bestGroup", teacherService.getBestGroupLabel());
-        model.addAttribute("bestGroupScore", teacherService.getBestGroupValue());
+        if (!isTeacher(session)) return "redirect:/login";
 
-        // histogram (distribution)
-        model.addAttribute("histLabels", teacherService.getHistogramLabels());
-        model.addAttribute("histValues", teacherService.getHistogramValues());
+        // ETag версии, с которой рендерится страница: первый опрос analytics.json получит 304
+        model.addAttribute("analyticsEtag", dataVersion.etag());
 
-        // top / low students
-        model.addAttribute("topStudents", teacherService.getTopStudents());
-        model.addAttribute("lowStudents", teacherService.getLowStudentsList());
+        // Снимок считается, только если хотя бы одного фрагмента нет в кеше
+        Supplier<Map<String, Object>> vars = FragmentCache.memoize(() -> analyticsVars(
+                teacherService.getAnalytics(), teacherService.getAnalyticsSeries()));
 
-        // absents
-        model.addAttribute("absentLeaders", teacherService.getAbsentLeaders());
+        Map<String, String> fragments = new HashMap<>();
+        for (String name : ANALYTICS_FRAGMENTS) {
+            fragments.put(name, fragmentCache.render(ANALYTICS_TEMPLATE, name, "", locale, vars));
+        }
+        model.addAttribute("fragments", fragments);
 
         return "teacher-analytics";
     }
 
+    private static final String ANALYTICS_TEMPLATE = "fragments/teacher-analytics";
+    private static final List<String> ANALYTICS_FRAGMENTS = List.of("summary", "ranking", "chartData");
+
+    private static Map<String, Object> analyticsVars(AnalyticsSnapshot a, AnalyticsSeries series) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("hasFinals", a.hasFinals());
+
+        // общие данные
+        vars.put("groupAvg", a.overallAverage());
+        vars.put("studentsWithFinals", a.studentsWithFinals());
+        vars.put("subjectsCount", a.subjectsCount());
+
+        // top / low students, absents
+        vars.put("topStudents", a.topStudents());
+        vars.put("lowStudents", a.lowStudents());
+        vars.put("absentLeaders", a.absentLeaders());
+
+        // серии графиков — те же, что отдаёт analytics.json
+        vars.put("chartData", a.hasFinals() ? series : null);
+
+        return vars;
+    }
+
     // ======================
     // REPORT
     // ======================
@@ -0,0 +1,14 @@
+package com.example.studentsystemweb.event;
+
+import java.util.Map;
+
+/**
+ * Публикуется после записи компонентов журнала одного студента по одному предмету.
+ * components — только изменённые work_type → значение.
+ */
+public record GradesChangedEvent(int studentId, String subject, Map<String, Double> components) {
+
+    public GradesChangedEvent {
+        components = Map.copyOf(components);
+    }
+}
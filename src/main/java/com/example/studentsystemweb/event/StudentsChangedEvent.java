@@ -0,0 +1,25 @@
+package com.example.studentsystemweb.event;
+
+import java.util.List;
+
+import com.example.studentsystemweb.model.Student;
+
+/**
+ * Публикуется после добавления или удаления студентов.
+ * added — новые студенты с уже присвоенными id, deletedIds — id удалённых.
+ */
+public record StudentsChangedEvent(List<Student> added, List<Integer> deletedIds) {
+
+    public StudentsChangedEvent {
+        added = List.copyOf(added);
+        deletedIds = List.copyOf(deletedIds);
+    }
+
+    public static StudentsChangedEvent added(List<Student> students) {
+        return new StudentsChangedEvent(students, List.of());
+    }
+
+    public static StudentsChangedEvent deleted(int id) {
+        return new StudentsChangedEvent(List.of(), List.of(id));
+    }
+}
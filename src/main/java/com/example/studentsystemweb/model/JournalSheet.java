@@ -0,0 +1,79 @@
+package com.example.studentsystemweb.model;
+
+import java.util.Arrays;
+
+/**
+ * Журнал одного студента по одному предмету в виде примитивных массивов.
+ *
+ * 45 ячеек (15 недель × lecture/sro/lab): значение + флаг (0 — оценка, 1 — Н, 2 — Н.П).
+ * Отдельные слоты для rk1/rk2/exam и для итогов tk1/tk2/r1/r2/dopusk/FINAL.
+ * Отсутствующее в БД значение хранится как NaN.
+ */
+public class JournalSheet {
+
+    public static final int WEEKS = 15;
+    public static final String[] TYPES = {"lecture", "sro", "lab"};
+    public static final int CELLS = WEEKS * TYPES.length;
+
+    public static final int RK1 = 0, RK2 = 1, EXAM = 2;
+    public static final String[] EXAM_KEYS = {"rk1", "rk2", "exam"};
+
+    public static final int TK1 = 0, TK2 = 1, R1 = 2, R2 = 3, DOPUSK = 4, FINAL = 5;
+    public static final String[] TOTAL_KEYS = {"tk1", "tk2", "r1", "r2", "dopusk", "FINAL"};
+
+    // Имена work_type заранее, чтобы не склеивать строки на каждом обращении
+    public static final String[] CELL_KEYS = new String[CELLS];
+    public static final String[] CELL_FLAG_KEYS = new String[CELLS];
+    public static final String[] EXAM_FLAG_KEYS = new String[EXAM_KEYS.length];
+
+    static {
+        for (int w = 1; w <= WEEKS; w++) {
+            for (int t = 0; t < TYPES.length; t++) {
+                int i = cell(w, t);
+                CELL_KEYS[i] = "week" + w + "_" + TYPES[t];
+                CELL_FLAG_KEYS[i] = CELL_KEYS[i] + "_flag";
+            }
+        }
+        for (int i = 0; i < EXAM_KEYS.length; i++) {
+            EXAM_FLAG_KEYS[i] = EXAM_KEYS[i] + "_flag";
+        }
+    }
+
+    private final double[] values = new double[CELLS];
+    private final byte[] flags = new byte[CELLS];
+    private final double[] exams = new double[EXAM_KEYS.length];
+    private final byte[] examFlags = new byte[EXAM_KEYS.length];
+    private final double[] totals = new double[TOTAL_KEYS.length];
+
+    public JournalSheet() {
+        Arrays.fill(values, Double.NaN);
+        Arrays.fill(exams, Double.NaN);
+        Arrays.fill(totals, Double.NaN);
+    }
+
+    // week — 1..15, type — индекс в TYPES
+    public static int cell(int week, int type) {
+        return (week - 1) * TYPES.length + type;
+    }
+
+    // ---------- Недельные ячейки ----------
+    public boolean hasValue(int cell) { return !Double.isNaN(values[cell]); }
+    public double value(int cell) { return values[cell]; }
+    public void setValue(int cell, double v) { values[cell] = v; }
+
+    public byte flag(int cell) { return flags[cell]; }
+    public void setFlag(int cell, byte f) { flags[cell] = f; }
+
+    // ---------- РК / экзамен ----------
+    public boolean hasExam(int i) { return !Double.isNaN(exams[i]); }
+    public double exam(int i) { return exams[i]; }
+    public void setExam(int i, double v) { exams[i] = v; }
+
+    public byte examFlag(int i) { return examFlags[i]; }
+    public void setExamFlag(int i, byte f) { examFlags[i] = f; }
+
+    // ---------- Итоги ----------
+    public boolean hasTotal(int i) { return !Double.isNaN(totals[i]); }
+    public double total(int i) { return totals[i]; }
+    public void setTotal(int i, double v) { totals[i] = v; }
+}
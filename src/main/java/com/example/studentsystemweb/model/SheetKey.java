@@ -0,0 +1,7 @@
+package com.example.studentsystemweb.model;
+
+/**
+ * Лист журнала: студент и предмет.
+ */
+public record SheetKey(int studentId, String subject) {
+}
@@ -0,0 +1,19 @@
+package com.example.studentsystemweb.model;
+
+import java.util.List;
+
+/**
+ * Страница студентов при keyset-пагинации по id.
+ * prevBefore — курсор для ?before= (null, если это первая страница),
+ * nextAfter — курсор для ?after= (null, если страница последняя).
+ */
+public record StudentPage(List<Student> students, Integer prevBefore, Integer nextAfter) {
+
+    public boolean hasPrev() {
+        return prevBefore != null;
+    }
+
+    public boolean hasNext() {
+        return nextAfter != null;
+    }
+}
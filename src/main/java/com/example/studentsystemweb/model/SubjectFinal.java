@@ -0,0 +1,9 @@
+package com.example.studentsystemweb.model;
+
+/**
+ * Строка таблицы finals: итоги одного листа журнала (студент, предмет).
+ * finalScore / dopusk — null, пока итоги листа ещё не пересчитаны.
+ * absences — число отметок Н (-1) в листе.
+ */
+public record SubjectFinal(int studentId, String subject, Double finalScore, Double dopusk, int absences) {
+}
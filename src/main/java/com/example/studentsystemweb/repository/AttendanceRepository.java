@@ -34,33 +34,39 @@ public class AttendanceRepository {
         );
     }
 
+    // ---------------- СЧЁТЧИКИ ----------------
+    // attendance_counters ведут триггеры миграции V4 на каждую запись в attendance
+
     public int countPresent(int studentId) {
-        Integer val = jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM attendance WHERE student_id = ? AND LOWER(status) = 'present'",
-                Integer.class, studentId
-        );
-        return val != null ? val : 0;
+        return counters(studentId)[0];
     }
 
     public int countAbsent(int studentId) {
-        Integer val = jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM attendance WHERE student_id = ? AND LOWER(status) = 'absent'",
-                Integer.class, studentId
+        return counters(studentId)[1];
+    }
+
+    // {present, absent} одним чтением по первичному ключу
+    public int[] counters(int studentId) {
+        List<int[]> rows = jdbcTemplate.query(
+                "SELECT present, absent FROM attendance_counters WHERE student_id = ?",
+                (rs, i) -> new int[]{rs.getInt(1), rs.getInt(2)},
+                studentId
         );
-        return val != null ? val : 0;
+        return rows.isEmpty() ? new int[2] : rows.get(0);
     }
 
-    public List<Map<String, Object>> absentLeaders(int minAbs) {
+    // Первые limit студентов по числу пропусков — по индексу на absent, без группировки
+    public List<Map<String, Object>> absentLeaders(int limit) {
         return jdbcTemplate.queryForList(
                 """
-                SELECT s.fullname, s.group_name, COUNT(a.id) AS abs
-                FROM attendance a
-                JOIN students s ON s.id = a.student_id
-                WHERE LOWER(a.status) = 'absent'
-                GROUP BY a.student_id
-                HAVING abs >= ?
+                SELECT s.fullname, s.group_name AS groupName, c.absent AS abs
+                FROM attendance_counters c
+                JOIN students s ON s.id = c.student_id
+                WHERE c.absent > 0
+                ORDER BY c.absent DESC, c.student_id
+                LIMIT ?
                 """,
-                minAbs
+                limit
         );
     }
 }
@@ -0,0 +1,109 @@
+package com.example.studentsystemweb.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.studentsystemweb.model.SubjectFinal;
+
+/**
+ * Материализованные итоги: одна строка finals на лист журнала.
+ *
+ * Строка пересобирается из строк grades листа тем же запросом, что и
+ * backfill миграции V5, — поэтому значения совпадают с EAV по построению.
+ */
+@Repository
+public class FinalsRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FinalsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private final RowMapper<SubjectFinal> mapper = (rs, rowNum) -> new SubjectFinal(
+            rs.getInt("student_id"),
+            rs.getString("subject"),
+            rs.getObject("final") == null ? null : rs.getDouble("final"),
+            rs.getObject("dopusk") == null ? null : rs.getDouble("dopusk"),
+            rs.getInt("absences")
+    );
+
+    private static final String COLUMNS = "student_id, subject, final, dopusk, absences";
+
+    // ---------------- ЗАПИСЬ ----------------
+
+    private static final String REFRESH_SQL = """
+            INSERT OR REPLACE INTO finals(student_id, subject, final, dopusk, absences, updated_at)
+            SELECT student_id, subject,
+                   MAX(CASE WHEN work_type = 'FINAL' THEN grade END),
+                   MAX(CASE WHEN work_type = 'dopusk' THEN grade END),
+                   SUM(grade = -1),
+                   strftime('%Y-%m-%dT%H:%M:%S', 'now', 'localtime')
+            FROM grades
+            WHERE student_id = ? AND subject = ?
+            GROUP BY student_id, subject
+            """;
+
+    /**
+     * Пересобрать строку листа после записи итогов. Вызывать в той же транзакции,
+     * что и запись в grades, — читатели не увидят расхождения.
+     */
+    @Transactional
+    public void refresh(int studentId, String subject) {
+        if (subject == null) return;
+        // та же нормализация, что при записи в grades
+        jdbcTemplate.update(REFRESH_SQL, studentId, subject.trim().replace("\u00A0", ""));
+    }
+
+    // ---------------- ЧТЕНИЕ ----------------
+
+    public List<SubjectFinal> findByStudent(int studentId) {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM finals WHERE student_id = ? ORDER BY subject",
+                mapper, studentId
+        );
+    }
+
+    // Строка одного листа или null, если у листа ещё нет строки
+    public SubjectFinal find(int studentId, String subject) {
+        if (subject == null) return null;
+        List<SubjectFinal> rows = jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM finals WHERE student_id = ? AND subject = ?",
+                mapper, studentId, subject.trim().replace("\u00A0", "")
+        );
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // Только переданные студенты (страница списка): поиск по первичному ключу
+    public List<SubjectFinal> findByStudents(Collection<Integer> studentIds) {
+        if (studentIds.isEmpty()) return List.of();
+
+        String in = String.join(",", Collections.nCopies(studentIds.size(), "?"));
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM finals WHERE student_id IN (" + in + ") ORDER BY student_id, subject",
+                mapper, studentIds.toArray()
+        );
+    }
+
+    // Листы без посчитанного FINAL (перенесены миграцией V5 до первого пересчёта)
+    public List<SubjectFinal> findUnscored() {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM finals WHERE final IS NULL ORDER BY student_id, subject",
+                mapper
+        );
+    }
+
+    // Вся когорта: по строке на лист, в порядке студентов
+    public List<SubjectFinal> findAll() {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM finals ORDER BY student_id, subject",
+                mapper
+        );
+    }
+}
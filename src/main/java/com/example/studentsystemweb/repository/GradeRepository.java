@@ -1,14 +1,28 @@
 package com.example.studentsystemweb.repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.studentsystemweb.model.Grade;
+import com.example.studentsystemweb.model.JournalSheet;
+import com.example.studentsystemweb.model.SheetKey;
+import com.example.studentsystemweb.model.Student;
 
 @Repository
 public class GradeRepository {
@@ -95,62 +109,180 @@ public class GradeRepository {
     }
 
     // ===========================================================
-    // 5. INSERT новой компоненты
+    // 4a. Лист журнала по предмету (массивы вместо Map)
     // ===========================================================
-    public void insertComponent(int studentId, String subject, String workType, double grade) {
-
-        subject = norm(subject);
-        workType = norm(workType);
+    public JournalSheet findSheet(int studentId, String subject) {
+        JournalSheet sheet = new JournalSheet();
+        jdbcTemplate.query(
+                "SELECT work_type, grade FROM grades WHERE student_id = ? AND subject = ? ORDER BY id",
+                rs -> { JournalSheetCodec.decode(sheet, rs.getString(1), rs.getDouble(2)); },
+                studentId, norm(subject)
+        );
+        return sheet;
+    }
 
-        jdbcTemplate.update(
-                "INSERT INTO grades(student_id, subject, work_type, grade) VALUES (?, ?, ?, ?)",
-                studentId, subject, workType, grade
+    // ===========================================================
+    // 4b. Листы по всем предметам студента одним запросом
+    //     subject -> JournalSheet, в порядке предметов
+    // ===========================================================
+    public Map<String, JournalSheet> findSheets(int studentId) {
+        Map<String, JournalSheet> sheets = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT subject, work_type, grade FROM grades WHERE student_id = ? ORDER BY subject, id",
+                rs -> {
+                    String subject = rs.getString(1);
+                    subject = subject == null ? null : subject.trim();
+                    JournalSheet sheet = sheets.computeIfAbsent(subject, k -> new JournalSheet());
+                    JournalSheetCodec.decode(sheet, rs.getString(2), rs.getDouble(3));
+                },
+                studentId
         );
+        return sheets;
     }
 
     // ===========================================================
-    // 6. UPDATE по ID
+    // 4c. Листы по набору (студент, предмет) одним запросом — для
+    //     пакетного пересчёта итогов. Лист без строк остаётся пустым
     // ===========================================================
-    public void updateById(int id, double grade) {
-        jdbcTemplate.update(
-                "UPDATE grades SET grade = ? WHERE id = ?",
-                grade, id
+    public Map<SheetKey, JournalSheet> findSheets(Collection<SheetKey> keys) {
+        Map<SheetKey, JournalSheet> sheets = new LinkedHashMap<>();
+        Map<SheetKey, JournalSheet> stored = new HashMap<>();
+        Set<Integer> students = new LinkedHashSet<>();
+        Set<String> subjects = new LinkedHashSet<>();
+
+        for (SheetKey key : keys) {
+            JournalSheet sheet = sheets.computeIfAbsent(key, k -> new JournalSheet());
+            stored.put(new SheetKey(key.studentId(), norm(key.subject())), sheet);
+            students.add(key.studentId());
+            subjects.add(norm(key.subject()));
+        }
+        if (sheets.isEmpty()) return sheets;
+
+        List<Object> args = new ArrayList<>(students);
+        args.addAll(subjects);
+
+        // Выборка по обоим спискам шире набора — лишние пары отбрасываются
+        jdbcTemplate.query(
+                "SELECT student_id, subject, work_type, grade FROM grades"
+                        + " WHERE student_id IN (" + String.join(",", Collections.nCopies(students.size(), "?")) + ")"
+                        + " AND subject IN (" + String.join(",", Collections.nCopies(subjects.size(), "?")) + ")"
+                        + " ORDER BY id",
+                rs -> {
+                    JournalSheet sheet = stored.get(new SheetKey(rs.getInt(1), rs.getString(2)));
+                    if (sheet != null) JournalSheetCodec.decode(sheet, rs.getString(3), rs.getDouble(4));
+                },
+                args.toArray()
         );
+        return sheets;
     }
 
     // ===========================================================
-    // 7. Найти одну компоненту
+    // Потоковое чтение листов: курсор только вперёд, строки EAV
+    // сворачиваются в лист (студент, предмет) на лету — в памяти
+    // одновременно держится один лист
     // ===========================================================
-    public Grade findOneComponent(int studentId, String subject, String workType) {
 
-        subject = norm(subject);
-        workType = norm(workType);
+    @FunctionalInterface
+    public interface SheetConsumer {
+        void accept(Student student, String subject, JournalSheet sheet);
+    }
 
-        List<Grade> list = jdbcTemplate.query(
-                "SELECT * FROM grades WHERE student_id = ? AND subject = ? AND work_type = ? LIMIT 1",
-                mapper, studentId, subject, workType
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Все листы группы (group == null — всей когорты) в порядке студент, предмет.
+     */
+    public void streamSheets(String group, SheetConsumer consumer) {
+
+        String sql = """
+                SELECT s.id, s.fullname, s.group_name, g.subject, g.work_type, g.grade
+                FROM students s
+                JOIN grades g ON g.student_id = s.id
+                """
+                + (group == null ? "" : "WHERE s.group_name = ?\n")
+                + "ORDER BY s.id, g.subject";
+
+        SheetCursor cur = new SheetCursor();
+
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(sql,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(STREAM_FETCH_SIZE);
+                    if (group != null) ps.setString(1, group);
+                    return ps;
+                },
+                (RowCallbackHandler) rs -> {
+                    int studentId = rs.getInt(1);
+                    String subject = rs.getString(4);
+                    subject = subject == null ? null : subject.trim();
+
+                    boolean sameStudent = cur.student != null && cur.student.getId() == studentId;
+
+                    if (!sameStudent || !Objects.equals(cur.subject, subject)) {
+                        cur.emit(consumer);
+
+                        if (!sameStudent) cur.student = new Student(studentId, rs.getString(2), rs.getString(3));
+                        cur.subject = subject;
+                        cur.sheet = new JournalSheet();
+                    }
+
+                    JournalSheetCodec.decode(cur.sheet, rs.getString(5), rs.getDouble(6));
+                }
         );
 
-        return list.isEmpty() ? null : list.get(0);
+        cur.emit(consumer);
+    }
+
+    private static final class SheetCursor {
+        Student student;
+        String subject;
+        JournalSheet sheet;
+
+        void emit(SheetConsumer consumer) {
+            if (sheet != null) consumer.accept(student, subject, sheet);
+        }
     }
 
     // ===========================================================
     // 8. UPSERT (добавить или обновить)
+    //    Нативный UPSERT по уникальному ключу (student_id, subject, work_type)
     // ===========================================================
+    private static final String UPSERT_SQL = """
+            INSERT INTO grades(student_id, subject, work_type, grade) VALUES (?, ?, ?, ?)
+            ON CONFLICT(student_id, subject, work_type) DO UPDATE SET grade = excluded.grade
+            """;
+
+    @Transactional
     public void upsertComponent(int studentId, String subject, String workType, Double grade) {
 
         if (grade == null) return;
 
+        jdbcTemplate.update(UPSERT_SQL, studentId, norm(subject), norm(workType), grade);
+    }
+
+    // ===========================================================
+    // 8a. Пакетный UPSERT всего листа журнала — один batch.
+    //     Вызывать внутри транзакции, чтобы весь лист ушёл одним коммитом.
+    // ===========================================================
+    @Transactional
+    public void upsertComponents(int studentId, String subject, Map<String, Double> components) {
+
         subject = norm(subject);
-        workType = norm(workType);
 
-        Grade exists = findOneComponent(studentId, subject, workType);
+        List<Object[]> rows = new ArrayList<>();
 
-        if (exists == null) {
-            insertComponent(studentId, subject, workType, grade);
-        } else {
-            updateById(exists.getId(), grade);
+        for (Map.Entry<String, Double> e : components.entrySet()) {
+            String workType = norm(e.getKey());
+            Double grade = e.getValue();
+            if (workType == null || workType.isEmpty() || grade == null) continue;
+
+            rows.add(new Object[]{studentId, subject, workType, grade});
         }
+
+        if (rows.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
     }
 
     // ===========================================================
@@ -164,6 +296,67 @@ public class GradeRepository {
         return v != null ? v : 0.0;
     }
 
+    // ===========================================================
+    // 9a. Средний FINAL по студентам (одним запросом)
+    //     Учитываются только FINAL > 0; у студентов без итогов — 0.0.
+    //     Итоги читаются из finals — строка на лист вместо строк EAV
+    // ===========================================================
+    private static final String FINAL_AVG_BY_STUDENT = """
+            SELECT student_id, AVG(final) AS avg
+            FROM finals
+            WHERE final > 0
+            GROUP BY student_id
+            """;
+
+    public Map<Integer, Double> finalAverageByStudent() {
+        Map<Integer, Double> map = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT s.id, COALESCE(f.avg, 0.0) AS avg FROM students s " +
+                "LEFT JOIN (" + FINAL_AVG_BY_STUDENT + ") f ON f.student_id = s.id " +
+                "ORDER BY s.id ASC",
+                rs -> { map.put(rs.getInt("id"), rs.getDouble("avg")); }
+        );
+        return map;
+    }
+
+    // Только для переданных студентов (страница списка): поиск по первичному ключу finals
+    public Map<Integer, Double> finalAverageByStudent(Collection<Integer> studentIds) {
+        Map<Integer, Double> map = new LinkedHashMap<>();
+        if (studentIds.isEmpty()) return map;
+
+        for (Integer id : studentIds) map.put(id, 0.0);
+
+        String in = String.join(",", Collections.nCopies(studentIds.size(), "?"));
+        jdbcTemplate.query(
+                "SELECT student_id, AVG(final) FROM finals " +
+                "WHERE final > 0 AND student_id IN (" + in + ") " +
+                "GROUP BY student_id",
+                rs -> { map.put(rs.getInt(1), rs.getDouble(2)); },
+                studentIds.toArray()
+        );
+        return map;
+    }
+
+    // ===========================================================
+    // 9b. Топ / худшие студенты по среднему FINAL
+    //     Строки: "student" -> Student, "avg" -> Double
+    // ===========================================================
+    public List<Map<String, Object>> studentsByFinalAverage(int limit, boolean descending) {
+        return jdbcTemplate.query(
+                "SELECT s.id, s.fullname, s.group_name, COALESCE(f.avg, 0.0) AS avg FROM students s " +
+                "LEFT JOIN (" + FINAL_AVG_BY_STUDENT + ") f ON f.student_id = s.id " +
+                "ORDER BY avg " + (descending ? "DESC" : "ASC") + ", s.id ASC " +
+                "LIMIT ?",
+                (rs, i) -> {
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("student", new Student(rs.getInt("id"), rs.getString("fullname"), rs.getString("group_name")));
+                    row.put("avg", rs.getDouble("avg"));
+                    return row;
+                },
+                limit
+        );
+    }
+
     // 
     // 10. SUPER IMPORTANT 
     // 
@@ -0,0 +1,85 @@
+package com.example.studentsystemweb.repository;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.example.studentsystemweb.model.JournalSheet;
+
+/**
+ * Перевод строк grades(work_type, grade) в JournalSheet и обратно.
+ * work_type разбирается одним поиском в заранее построенной таблице слотов.
+ */
+public final class JournalSheetCodec {
+
+    private static final int CELL = 0, CELL_FLAG = 1, EXAM = 2, EXAM_FLAG = 3, TOTAL = 4;
+
+    // work_type -> (kind << 8 | index)
+    private static final Map<String, Integer> SLOTS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < JournalSheet.CELLS; i++) {
+            SLOTS.put(JournalSheet.CELL_KEYS[i], CELL << 8 | i);
+            SLOTS.put(JournalSheet.CELL_FLAG_KEYS[i], CELL_FLAG << 8 | i);
+        }
+        for (int i = 0; i < JournalSheet.EXAM_KEYS.length; i++) {
+            SLOTS.put(JournalSheet.EXAM_KEYS[i], EXAM << 8 | i);
+            SLOTS.put(JournalSheet.EXAM_FLAG_KEYS[i], EXAM_FLAG << 8 | i);
+        }
+        for (int i = 0; i < JournalSheet.TOTAL_KEYS.length; i++) {
+            SLOTS.put(JournalSheet.TOTAL_KEYS[i], TOTAL << 8 | i);
+        }
+    }
+
+    private JournalSheetCodec() {}
+
+    /**
+     * Записывает одну строку grades в лист. Неизвестные work_type игнорируются.
+     */
+    public static void decode(JournalSheet sheet, String workType, double grade) {
+        if (workType == null) return;
+
+        Integer slot = SLOTS.get(workType);
+        if (slot == null) slot = SLOTS.get(workType.trim().replace(" ", ""));
+        if (slot == null) return;
+
+        int i = slot & 0xFF;
+        switch (slot >> 8) {
+            case CELL -> sheet.setValue(i, grade);
+            case CELL_FLAG -> sheet.setFlag(i, (byte) grade);
+            case EXAM -> sheet.setExam(i, grade);
+            case EXAM_FLAG -> sheet.setExamFlag(i, (byte) grade);
+            default -> sheet.setTotal(i, grade);
+        }
+    }
+
+    /**
+     * Все заполненные слоты листа в виде work_type -> grade (для записи в БД).
+     * Флаги пишутся всегда, значения — только если заданы.
+     */
+    public static Map<String, Double> encode(JournalSheet sheet) {
+        Map<String, Double> out = new LinkedHashMap<>();
+
+        for (int i = 0; i < JournalSheet.CELLS; i++) {
+            out.put(JournalSheet.CELL_FLAG_KEYS[i], (double) sheet.flag(i));
+            if (sheet.hasValue(i)) out.put(JournalSheet.CELL_KEYS[i], sheet.value(i));
+        }
+        for (int i = 0; i < JournalSheet.EXAM_KEYS.length; i++) {
+            out.put(JournalSheet.EXAM_FLAG_KEYS[i], (double) sheet.examFlag(i));
+            if (sheet.hasExam(i)) out.put(JournalSheet.EXAM_KEYS[i], sheet.exam(i));
+        }
+        out.putAll(encodeTotals(sheet));
+        return out;
+    }
+
+    /**
+     * Только итоговые слоты (tk1..FINAL).
+     */
+    public static Map<String, Double> encodeTotals(JournalSheet sheet) {
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (int i = 0; i < JournalSheet.TOTAL_KEYS.length; i++) {
+            if (sheet.hasTotal(i)) out.put(JournalSheet.TOTAL_KEYS[i], sheet.total(i));
+        }
+        return out;
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.studentsystemweb.repository;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.model.StudentPage;
 
 @Repository
 public class StudentRepository {
@@ -39,13 +43,107 @@ public class StudentRepository {
         );
     }
 
-    public void insert(String fullname, String group) {
+    // ---------------- KEYSET-ПАГИНАЦИЯ ----------------
+    // Поиск по id (или по group_name + id через ix_students_group) вместо OFFSET:
+    // стоимость страницы зависит только от её размера
+
+    public StudentPage findPage(String group, Integer afterId, Integer beforeId, int size) {
+
+        String where = group == null ? "" : "group_name = ? AND ";
+        List<Student> rows;
+
+        if (beforeId != null) {
+            rows = new ArrayList<>(jdbcTemplate.query(
+                    "SELECT * FROM students WHERE " + where + "id < ? ORDER BY id DESC LIMIT ?",
+                    mapper, args(group, beforeId, size + 1)
+            ));
+            boolean more = rows.size() > size;
+            if (more) rows.remove(rows.size() - 1);
+            Collections.reverse(rows);
+
+            return page(rows, more, true);
+        }
+
+        rows = new ArrayList<>(jdbcTemplate.query(
+                "SELECT * FROM students WHERE " + where + "id > ? ORDER BY id ASC LIMIT ?",
+                mapper, args(group, afterId == null ? 0 : afterId, size + 1)
+        ));
+        boolean more = rows.size() > size;
+        if (more) rows.remove(rows.size() - 1);
+
+        boolean earlier = afterId != null && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS(SELECT 1 FROM students WHERE " + where + "id <= ?)",
+                Boolean.class, group == null ? new Object[]{afterId} : new Object[]{group, afterId}
+        ));
+
+        return page(rows, earlier, more);
+    }
+
+    private StudentPage page(List<Student> rows, boolean hasPrev, boolean hasNext) {
+        if (rows.isEmpty()) return new StudentPage(rows, null, null);
+
+        return new StudentPage(
+                rows,
+                hasPrev ? rows.get(0).getId() : null,
+                hasNext ? rows.get(rows.size() - 1).getId() : null
+        );
+    }
+
+    private static Object[] args(String group, int id, int limit) {
+        return group == null ? new Object[]{id, limit} : new Object[]{group, id, limit};
+    }
+
+    public int count(String group) {
+        Integer n = group == null
+                ? jdbcTemplate.queryForObject("SELECT COUNT(*) FROM students", Integer.class)
+                : jdbcTemplate.queryForObject("SELECT COUNT(*) FROM students WHERE group_name = ?", Integer.class, group);
+        return n == null ? 0 : n;
+    }
+
+    // Последние добавленные — для выпадающих списков
+    public List<Student> findLatest(int limit) {
+        return jdbcTemplate.query(
+                "SELECT * FROM students ORDER BY id DESC LIMIT ?",
+                mapper, limit
+        );
+    }
+
+    // Возвращает id нового студента
+    @Transactional
+    public int insert(String fullname, String group) {
         jdbcTemplate.update(
                 "INSERT INTO students(fullname, group_name) VALUES (?, ?)",
                 fullname, group
         );
+        Integer id = jdbcTemplate.queryForObject("SELECT last_insert_rowid()", Integer.class);
+        return id == null ? 0 : id;
+    }
+
+    // Пакетная вставка; проставляет id вставленным студентам.
+    // AUTOINCREMENT на одном соединении внутри транзакции выдаёт id подряд,
+    // поэтому id считаются от last_insert_rowid()
+    @Transactional
+    public void insertAll(List<Student> students) {
+        if (students.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO students(fullname, group_name) VALUES (?, ?)",
+                students, students.size(),
+                (ps, s) -> {
+                    ps.setString(1, s.getFullname());
+                    ps.setString(2, s.getGroupName());
+                }
+        );
+
+        Integer last = jdbcTemplate.queryForObject("SELECT last_insert_rowid()", Integer.class);
+        int first = last - students.size() + 1;
+
+        for (int i = 0; i < students.size(); i++) {
+            students.get(i).setId(first + i);
+        }
     }
 
+    @Transactional
     public void delete(int id) {
         jdbcTemplate.update(
                 "DELETE FROM students WHERE id = ?",
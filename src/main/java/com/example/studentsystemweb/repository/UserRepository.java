@@ -5,8 +5,13 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 public class UserRepository {
@@ -39,6 +44,7 @@ public class UserRepository {
         return jdbcTemplate.query("SELECT * FROM users ORDER BY id", mapper);
     }
 
+    @Transactional
     public void createUser(String login, String password, String role, Integer linkedStudentId) {
         try {
             jdbcTemplate.update(
@@ -54,6 +60,35 @@ public class UserRepository {
         }
     }
 
+    // Какие из переданных логинов уже заняты
+    public Set<String> findExistingLogins(Collection<String> logins) {
+        if (logins.isEmpty()) return Set.of();
+
+        String in = String.join(",", Collections.nCopies(logins.size(), "?"));
+        return new HashSet<>(jdbcTemplate.query(
+                "SELECT login FROM users WHERE login IN (" + in + ")",
+                (rs, i) -> rs.getString(1),
+                logins.toArray()
+        ));
+    }
+
+    @Transactional
+    public void insertAll(List<User> users) {
+        if (users.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users(login, password, role, linked_student_id) VALUES (?, ?, ?, ?)",
+                users, users.size(),
+                (ps, u) -> {
+                    ps.setString(1, u.getLogin());
+                    ps.setString(2, u.getPassword());
+                    ps.setString(3, u.getRole());
+                    ps.setObject(4, u.getLinkedStudentId());
+                }
+        );
+    }
+
+    @Transactional
     public void deleteUser(int id) {
         jdbcTemplate.update("DELETE FROM users WHERE id = ?", id);
     }
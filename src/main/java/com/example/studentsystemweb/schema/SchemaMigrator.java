@@ -0,0 +1,271 @@
+package com.example.studentsystemweb.schema;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Версионированная схема БД.
+ *
+ * Применённые версии хранятся в schema_version. При старте приложения все
+ * недостающие миграции выполняются одной транзакцией на пишущем соединении,
+ * до того как сервер начнёт принимать запросы.
+ */
+@Component
+public class SchemaMigrator implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    record Migration(int version, String description, List<String> statements) {}
+
+    static final List<Migration> MIGRATIONS = List.of(
+
+            new Migration(1, "базовые таблицы", List.of(
+                    """
+                    CREATE TABLE IF NOT EXISTS students(
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        fullname TEXT NOT NULL,
+                        group_name TEXT
+                    )""",
+                    """
+                    CREATE TABLE IF NOT EXISTS users(
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        login TEXT NOT NULL UNIQUE,
+                        password TEXT NOT NULL,
+                        role TEXT NOT NULL,
+                        linked_student_id INTEGER
+                    )""",
+                    """
+                    CREATE TABLE IF NOT EXISTS grades(
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        student_id INTEGER NOT NULL,
+                        subject TEXT,
+                        work_type TEXT,
+                        grade REAL
+                    )""",
+                    """
+                    CREATE TABLE IF NOT EXISTS attendance(
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        student_id INTEGER NOT NULL,
+                        date TEXT,
+                        subject TEXT,
+                        status TEXT
+                    )""",
+                    """
+                    CREATE TABLE IF NOT EXISTS progress(
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        student_id INTEGER NOT NULL,
+                        work_type TEXT,
+                        score REAL,
+                        created_at TEXT
+                    )"""
+            )),
+
+            // Репозиторий нормализует subject/work_type при записи — приводим старые строки
+            // к тому же виду и оставляем по каждому ключу последнюю запись (как getComponentMap)
+            new Migration(2, "уникальный ключ оценок", List.of(
+                    """
+                    UPDATE grades
+                    SET subject = REPLACE(TRIM(subject), char(160), ''),
+                        work_type = REPLACE(TRIM(work_type), char(160), '')
+                    WHERE subject <> REPLACE(TRIM(subject), char(160), '')
+                       OR work_type <> REPLACE(TRIM(work_type), char(160), '')""",
+                    """
+                    DELETE FROM grades
+                    WHERE id NOT IN (
+                        SELECT MAX(id) FROM grades GROUP BY student_id, subject, work_type
+                    )""",
+                    """
+                    CREATE UNIQUE INDEX IF NOT EXISTS ux_grades_student_subject_type
+                        ON grades(student_id, subject, work_type)"""
+            )),
+
+            new Migration(3, "индексы под запросы репозиториев", List.of(
+                    // findByGroup / findAllGroups (rowid входит в индекс — ORDER BY id без сортировки)
+                    "CREATE INDEX IF NOT EXISTS ix_students_group ON students(group_name)",
+                    // findByStudentId
+                    "CREATE INDEX IF NOT EXISTS ix_attendance_student_status ON attendance(student_id, status)",
+                    // средний FINAL по студентам — покрывающий частичный индекс
+                    """
+                    CREATE INDEX IF NOT EXISTS ix_grades_final
+                        ON grades(student_id, grade) WHERE work_type = 'FINAL'""",
+                    "CREATE INDEX IF NOT EXISTS ix_progress_student ON progress(student_id)"
+            )),
+
+            // Статус посещения хранится кодом 'present' / 'absent' (SQLite lower() не знает
+            // кириллицу, поэтому русские варианты перечислены явно). Счётчики по студенту
+            // ведут триггеры на attendance; их читают страницы студента и лидеры пропусков.
+            new Migration(4, "счётчики посещаемости", List.of(
+                    """
+                    UPDATE attendance SET status = 'present'
+                    WHERE LOWER(TRIM(status)) = 'present'
+                       OR TRIM(status) IN ('Присутствовал', 'присутствовал', 'Присутствовала', 'присутствовала',
+                                           'Присутствует', 'присутствует', 'Был', 'был')""",
+                    """
+                    UPDATE attendance SET status = 'absent'
+                    WHERE LOWER(TRIM(status)) = 'absent'
+                       OR TRIM(status) IN ('Отсутствовал', 'отсутствовал', 'Отсутствовала', 'отсутствовала',
+                                           'Отсутствует', 'отсутствует', 'Н', 'н')""",
+                    """
+                    CREATE TABLE IF NOT EXISTS attendance_counters(
+                        student_id INTEGER PRIMARY KEY,
+                        present INTEGER NOT NULL DEFAULT 0,
+                        absent INTEGER NOT NULL DEFAULT 0
+                    )""",
+                    // absentLeaders — сразу в порядке убывания пропусков
+                    "CREATE INDEX IF NOT EXISTS ix_attendance_counters_absent ON attendance_counters(absent)",
+                    """
+                    INSERT OR REPLACE INTO attendance_counters(student_id, present, absent)
+                    SELECT student_id, SUM(status = 'present'), SUM(status = 'absent')
+                    FROM attendance GROUP BY student_id""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_attendance_insert AFTER INSERT ON attendance
+                    BEGIN
+                        INSERT INTO attendance_counters(student_id, present, absent)
+                        VALUES (NEW.student_id, NEW.status = 'present', NEW.status = 'absent')
+                        ON CONFLICT(student_id) DO UPDATE SET
+                            present = present + excluded.present,
+                            absent = absent + excluded.absent;
+                    END""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_attendance_delete AFTER DELETE ON attendance
+                    BEGIN
+                        UPDATE attendance_counters SET
+                            present = present - (OLD.status = 'present'),
+                            absent = absent - (OLD.status = 'absent')
+                        WHERE student_id = OLD.student_id;
+                    END""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_attendance_update AFTER UPDATE OF student_id, status ON attendance
+                    BEGIN
+                        UPDATE attendance_counters SET
+                            present = present - (OLD.status = 'present'),
+                            absent = absent - (OLD.status = 'absent')
+                        WHERE student_id = OLD.student_id;
+                        INSERT INTO attendance_counters(student_id, present, absent)
+                        VALUES (NEW.student_id, NEW.status = 'present', NEW.status = 'absent')
+                        ON CONFLICT(student_id) DO UPDATE SET
+                            present = present + excluded.present,
+                            absent = absent + excluded.absent;
+                    END""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_students_delete AFTER DELETE ON students
+                    BEGIN
+                        DELETE FROM attendance_counters WHERE student_id = OLD.id;
+                    END"""
+            )),
+
+            // Одна строка на лист журнала (студент, предмет): FINAL, допуск и число Н.
+            // Пишет GradingService.recalcTotals в транзакции пересчёта; аналитика читает
+            // её вместо всех строк EAV. Существующие листы заполняются здесь же; листы
+            // без сохранённого FINAL досчитывает формулой TotalsRecalcQueue при старте.
+            new Migration(5, "материализованные итоги", List.of(
+                    """
+                    CREATE TABLE IF NOT EXISTS finals(
+                        student_id INTEGER NOT NULL,
+                        subject TEXT NOT NULL,
+                        final REAL,
+                        dopusk REAL,
+                        absences INTEGER NOT NULL DEFAULT 0,
+                        updated_at TEXT NOT NULL,
+                        PRIMARY KEY (student_id, subject)
+                    ) WITHOUT ROWID""",
+                    """
+                    INSERT OR REPLACE INTO finals(student_id, subject, final, dopusk, absences, updated_at)
+                    SELECT student_id, subject,
+                           MAX(CASE WHEN work_type = 'FINAL' THEN grade END),
+                           MAX(CASE WHEN work_type = 'dopusk' THEN grade END),
+                           SUM(grade = -1),
+                           strftime('%Y-%m-%dT%H:%M:%S', 'now', 'localtime')
+                    FROM grades
+                    WHERE subject IS NOT NULL
+                    GROUP BY student_id, subject""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_students_delete_finals AFTER DELETE ON students
+                    BEGIN
+                        DELETE FROM finals WHERE student_id = OLD.id;
+                    END"""
+            ))
+    );
+
+    private final DataSource dataSource;
+    private final TransactionTemplate tx;
+
+    public SchemaMigrator(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.dataSource = dataSource;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        tx.executeWithoutResult(status -> {
+            Connection c = DataSourceUtils.getConnection(dataSource);
+            try {
+                int applied = migrate(c);
+                if (applied > 0) log.info("Схема БД: применено миграций — {}, версия {}", applied, latestVersion());
+            } catch (SQLException e) {
+                throw new IllegalStateException("Не удалось обновить схему БД", e);
+            } finally {
+                DataSourceUtils.releaseConnection(c, dataSource);
+            }
+        });
+    }
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+    }
+
+    /**
+     * Применяет недостающие миграции на переданном соединении.
+     * Транзакцией управляет вызывающий код. Возвращает число применённых миграций.
+     */
+    public static int migrate(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version(
+                        version INTEGER PRIMARY KEY,
+                        description TEXT NOT NULL,
+                        applied_at TEXT NOT NULL
+                    )""");
+        }
+
+        int current;
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            current = rs.getInt(1);
+        }
+
+        int applied = 0;
+        for (Migration m : MIGRATIONS) {
+            if (m.version() <= current) continue;
+
+            try (Statement st = c.createStatement()) {
+                for (String sql : m.statements()) st.execute(sql);
+            }
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO schema_version(version, description, applied_at) VALUES (?, ?, ?)")) {
+                ps.setInt(1, m.version());
+                ps.setString(2, m.description());
+                ps.setString(3, LocalDateTime.now().toString());
+                ps.executeUpdate();
+            }
+            applied++;
+        }
+        return applied;
+    }
+}
@@ -1,17 +1,18 @@
 package com.example.studentsystemweb.service;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import com.example.studentsystemweb.model.Grade;
+import com.example.studentsystemweb.event.StudentsChangedEvent;
 import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.model.StudentPage;
 import com.example.studentsystemweb.repository.GradeRepository;
 import com.example.studentsystemweb.repository.StudentRepository;
 import com.example.studentsystemweb.repository.UserRepository;
@@ -22,13 +23,22 @@ public class AdminService {
     private final StudentRepository studentRepository;
     private final GradeRepository gradeRepository;
     private final UserRepository userRepository;
+    private final StudentImportService importService;
+    private final GroupRollups groupRollups;
+    private final ApplicationEventPublisher events;
 
     public AdminService(StudentRepository studentRepository,
                         GradeRepository gradeRepository,
-                        UserRepository userRepository) {
+                        UserRepository userRepository,
+                        StudentImportService importService,
+                        GroupRollups groupRollups,
+                        ApplicationEventPublisher events) {
         this.studentRepository = studentRepository;
         this.gradeRepository = gradeRepository;
         this.userRepository = userRepository;
+        this.importService = importService;
+        this.groupRollups = groupRollups;
+        this.events = events;
     }
 
     // ------------------------------------------------------------
@@ -39,39 +49,39 @@ public class AdminService {
         return studentRepository.findAll();
     }
 
+    public StudentPage getStudentsPage(Integer after, Integer before, int size) {
+        return studentRepository.findPage(null, after, before, size);
+    }
+
+    public int countStudents() {
+        return studentRepository.count(null);
+    }
+
+    public List<Student> getLatestStudents(int limit) {
+        return studentRepository.findLatest(limit);
+    }
+
     public void addStudent(String fullname, String group) {
-        studentRepository.insert(fullname, group);
+        int id = studentRepository.insert(fullname, group);
+        events.publishEvent(StudentsChangedEvent.added(List.of(new Student(id, fullname, group))));
     }
 
     public void deleteStudent(int id) {
         studentRepository.delete(id);
+        events.publishEvent(StudentsChangedEvent.deleted(id));
     }
 
-    // ------------------------------------------------------------
-    // Аналитика
-    // ------------------------------------------------------------
-
     /**
-     * Реальный средний балл конкретного студента.
-     *
-     * Реализация: берём все записи оценок студента, фильтруем только FINAL и
-     * считаем среднее по этим значениям. Если FINAL нет — возвращаем 0.0.
+     * Импорт студентов и STUDENT-аккаунтов из CSV (потоково, пачками).
      */
-    private Double averageForStudent(int studentId) {
-        List<Grade> grades = gradeRepository.findByStudent(studentId);
-        if (grades == null || grades.isEmpty()) return 0.0;
-
-        return grades.stream()
-                .filter(Objects::nonNull)
-                .filter(g -> "FINAL".equalsIgnoreCase(g.getWorkType()))
-                .map(Grade::getGrade)
-                .filter(Objects::nonNull)
-                .filter(v -> v > 0) // игнорируем -1 / -2 и нулевые
-                .mapToDouble(Double::doubleValue)
-                .average()
-                .orElse(0.0);
+    public StudentImportService.ImportResult importStudents(InputStream csv) throws IOException {
+        return importService.importCsv(csv);
     }
 
+    // ------------------------------------------------------------
+    // Аналитика
+    // ------------------------------------------------------------
+
     /**
      * Средний балл всех студентов (общий).
      */
@@ -81,85 +91,46 @@ public class AdminService {
     }
 
     /**
-     * Средний балл каждого студента (карта ID → AVG)
+     * Средний балл каждого студента (карта ID → AVG).
+     * Один агрегирующий запрос: FINAL > 0, без итогов — 0.0.
      */
     public Map<Integer, Double> averageByStudent() {
-        Map<Integer, Double> result = new LinkedHashMap<>();
-
-        for (Student s : studentRepository.findAll()) {
-            result.put(s.getId(), averageForStudent(s.getId()));
-        }
+        return gradeRepository.finalAverageByStudent();
+    }
 
-        return result;
+    /**
+     * То же, но только для студентов текущей страницы.
+     */
+    public Map<Integer, Double> averageByStudent(Collection<Integer> studentIds) {
+        return gradeRepository.finalAverageByStudent(studentIds);
     }
 
     /**
      * Топ студентов по среднему баллу
      */
     public List<Map<String, Object>> getTopStudents(int count) {
-
-        List<Map<String, Object>> list = new ArrayList<>();
-
-        for (Student s : studentRepository.findAll()) {
-            Map<String, Object> row = new HashMap<>();
-            row.put("student", s);
-            row.put("avg", averageForStudent(s.getId()));
-            list.add(row);
-        }
-
-        list.sort((a, b) ->
-                Double.compare((Double) b.get("avg"), (Double) a.get("avg"))
-        );
-
-        return list.subList(0, Math.min(count, list.size()));
+        return gradeRepository.studentsByFinalAverage(count, true);
     }
 
     /**
      * Худшие студенты (низкий средний балл)
      */
     public List<Map<String, Object>> getWorstStudents(int count) {
-
-        List<Map<String, Object>> list = new ArrayList<>();
-
-        for (Student s : studentRepository.findAll()) {
-            Map<String, Object> row = new HashMap<>();
-            row.put("student", s);
-            row.put("avg", averageForStudent(s.getId()));
-            list.add(row);
-        }
-
-        list.sort(Comparator.comparing(a -> (Double) a.get("avg")));
-
-        return list.subList(0, Math.min(count, list.size()));
+        return gradeRepository.studentsByFinalAverage(count, false);
     }
 
     /**
-     * Средний балл групп
+     * Средний балл групп (студенты без итогов — 0.0), из агрегатов GroupRollups.
+     * Студенты без группы — под меткой NO_GROUP: ключ уходит в JSON графика и не может быть null.
      */
     public Map<String, Double> groupAverages() {
-        Map<String, List<Double>> groups = new LinkedHashMap<>();
-
-        for (Student s : studentRepository.findAll()) {
-            double avg = averageForStudent(s.getId());
-            groups.putIfAbsent(s.getGroupName(), new ArrayList<>());
-            groups.get(s.getGroupName()).add(avg);
-        }
-
-        Map<String, Double> result = new LinkedHashMap<>();
-
-        for (var entry : groups.entrySet()) {
-            double avg = entry.getValue()
-                    .stream()
-                    .mapToDouble(Double::doubleValue)
-                    .average()
-                    .orElse(0.0);
-
-            result.put(entry.getKey(), avg);
-        }
-
-        return result;
+        Map<String, Double> map = new LinkedHashMap<>();
+        groupRollups.averagesByFirstStudent().forEach((g, avg) -> map.put(g == null ? NO_GROUP : g, avg));
+        return map;
     }
 
+    private static final String NO_GROUP = "Без группы";
+
     // ------------------------------------------------------------
     // Создание пользователя
     // ------------------------------------------------------------
@@ -0,0 +1,344 @@
+package com.example.studentsystemweb.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.studentsystemweb.event.GradesChangedEvent;
+import com.example.studentsystemweb.event.StudentsChangedEvent;
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.model.SubjectFinal;
+import com.example.studentsystemweb.repository.AttendanceRepository;
+import com.example.studentsystemweb.repository.FinalsRepository;
+import com.example.studentsystemweb.repository.StudentRepository;
+
+/**
+ * Накопительное состояние аналитики преподавателя поверх таблицы finals:
+ * строки листов, средние студентов, суммы по предметам, корзины диаграмм
+ * и упорядоченные наборы для топа и отстающих.
+ *
+ * Строится при старте по finals и студентам. Дальше событие с FINAL
+ * перечитывает одну строку (студент, предмет): вклад старой строки в сумму
+ * предмета вычитается, новой — прибавляется, средний студента считается
+ * заново по его листам и переставляется в корзинах и рейтингах. Студенты —
+ * по StudentsChangedEvent; строки удалённого уходят и из сумм предметов
+ * (их строки finals удаляет триггер миграции V5).
+ *
+ * Строка читается вне монитора с номером чтения — как в GroupRollups.
+ * Снимок собирается из состояния без перечитывания finals; групповые серии —
+ * из GroupRollups, лидеры пропусков — из счётчиков посещаемости (V4).
+ * Снимок по версии данных кеширует TeacherService.
+ */
+@Service
+public class AnalyticsRollups {
+
+    private record Row(SubjectFinal f, long read) {}
+
+    // Вклад студента: средний FINAL (null — не все итоги выставлены)
+    private record Member(Student student, Double average) {
+        int id() { return student.getId(); }
+    }
+
+    private static final Comparator<Member> BY_ID = Comparator.comparingInt(Member::id);
+
+    private final StudentRepository studentRepository;
+    private final FinalsRepository finalsRepository;
+    private final AttendanceRepository attendanceRepository;
+    private final GroupRollups groupRollups;
+
+    // studentId -> предмет -> строка finals (по предметам, как ORDER BY subject)
+    private final Map<Integer, Map<String, Row>> sheets = new HashMap<>();
+    // по id — порядок finalAverages
+    private final Map<Integer, Member> members = new TreeMap<>();
+    // предмет -> {сумма FINAL > 0, их число, число листов}
+    private final Map<String, double[]> subjects = new TreeMap<>();
+
+    // средние хранятся округлёнными до сотых — сумма в сотых точная
+    private long averageCents;
+    private int withFinals;
+    private final int[] pie = new int[4];
+    private final int[] hist = new int[6];
+
+    // Ранжирование как у сортировок снимка: при равенстве — по id
+    private final NavigableSet<Member> low = new TreeSet<>(
+            Comparator.comparingDouble(Member::average).thenComparing(BY_ID));
+    private final NavigableSet<Member> top = new TreeSet<>(
+            Comparator.comparingDouble(Member::average).reversed().thenComparing(BY_ID));
+
+    private volatile boolean built;
+
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    public AnalyticsRollups(StudentRepository studentRepository,
+                            FinalsRepository finalsRepository,
+                            AttendanceRepository attendanceRepository,
+                            GroupRollups groupRollups) {
+        this.studentRepository = studentRepository;
+        this.finalsRepository = finalsRepository;
+        this.attendanceRepository = attendanceRepository;
+        this.groupRollups = groupRollups;
+    }
+
+    // ================= BUILD / UPDATE =================
+
+    // Сборка держит монитор: события, пришедшие во время неё, применятся после
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void build() {
+        sheets.clear();
+        members.clear();
+        subjects.clear();
+        averageCents = 0;
+        withFinals = 0;
+        Arrays.fill(pie, 0);
+        Arrays.fill(hist, 0);
+        low.clear();
+        top.clear();
+
+        long read = reads.incrementAndGet();
+        for (SubjectFinal f : finalsRepository.findAll()) putRow(f, read);
+        for (Student s : studentRepository.findAll()) putMember(s);
+        built = true;
+    }
+
+    // Итоги пишут saveJournal и TotalsRecalcQueue — событие с FINAL приходит после коммита строки finals
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGradesChanged(GradesChangedEvent event) {
+        if (!built || !event.components().containsKey("FINAL")) return;
+
+        long read = reads.incrementAndGet();
+        SubjectFinal f = finalsRepository.find(event.studentId(), event.subject());
+        if (f == null) return;
+
+        synchronized (this) {
+            Row old = sheets.getOrDefault(f.studentId(), Map.of()).get(f.subject());
+            if (old != null && old.read() > read) return; // уже применено более позднее чтение
+
+            putRow(f, read);
+            Member m = members.get(f.studentId());
+            if (m != null) putMember(m.student());
+        }
+        refreshes.incrementAndGet();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStudentsChanged(StudentsChangedEvent event) {
+        if (!built) return; // построится целиком уже с этими данными
+
+        for (Integer id : event.deletedIds()) {
+            removeMember(id);
+            Map<String, Row> st = sheets.remove(id);
+            if (st != null) for (Row r : st.values()) addToSubject(r.f(), -1);
+        }
+        for (Student s : event.added()) putMember(s);
+    }
+
+    private void putRow(SubjectFinal f, long read) {
+        Row old = sheets.computeIfAbsent(f.studentId(), k -> new TreeMap<>()).put(f.subject(), new Row(f, read));
+        if (old != null) addToSubject(old.f(), -1);
+        addToSubject(f, 1);
+    }
+
+    private void addToSubject(SubjectFinal f, int sign) {
+        double[] acc = subjects.computeIfAbsent(f.subject(), k -> new double[3]);
+        Double fin = f.finalScore();
+        if (fin != null && fin > 0) {
+            acc[0] += sign * fin;
+            acc[1] += sign;
+        }
+        acc[2] += sign;
+        if (acc[2] == 0) subjects.remove(f.subject());
+    }
+
+    // Вклад студента по его текущим листам: прежний снимается, новый добавляется
+    private void putMember(Student s) {
+        removeMember(s.getId());
+
+        Map<String, Row> st = sheets.get(s.getId());
+        Member m = new Member(s, finalAverage(st));
+        members.put(m.id(), m);
+
+        if (m.average() == null) return;
+
+        averageCents += cents(m.average());
+        withFinals++;
+        pie[pieBucket(m.average())]++;
+        hist[histBucket(m.average())]++;
+        low.add(m);
+        top.add(m);
+    }
+
+    private void removeMember(int id) {
+        Member m = members.remove(id);
+        if (m == null || m.average() == null) return;
+
+        averageCents -= cents(m.average());
+        withFinals--;
+        pie[pieBucket(m.average())]--;
+        hist[histBucket(m.average())]--;
+        low.remove(m);
+        top.remove(m);
+    }
+
+    // ================= SNAPSHOT =================
+
+    /** Снимок аналитики по текущему состоянию; кешировать — на стороне вызывающего. */
+    public AnalyticsSnapshot snapshot() {
+        // первые пять по счётчикам — короткое чтение по индексу, вне монитора
+        List<Map<String, Object>> absentLeaders = new ArrayList<>();
+        for (Map<String, Object> row : attendanceRepository.absentLeaders(5)) {
+            absentLeaders.add(Collections.unmodifiableMap(row));
+        }
+
+        synchronized (this) {
+            return snapshot(Collections.unmodifiableList(absentLeaders));
+        }
+    }
+
+    private AnalyticsSnapshot snapshot(List<Map<String, Object>> absentLeaders) {
+        if (!built) build();
+
+        Map<Integer, Double> finalAverages = new LinkedHashMap<>();
+        for (Member m : members.values()) finalAverages.put(m.id(), m.average());
+
+        List<String> subjectsLabels = new ArrayList<>(subjects.keySet());
+        List<Double> subjectsValues = new ArrayList<>();
+        for (double[] acc : subjects.values()) {
+            subjectsValues.add(acc[1] == 0 ? null : round2(acc[0] / acc[1]));
+        }
+
+        // ---- groups (студенты без группы — отдельной меткой без значений) ----
+        List<String> groupLabels = new ArrayList<>();
+        List<Double> groupValues = new ArrayList<>();
+        List<Integer> absByGroup = new ArrayList<>();
+
+        String bestLabel = null;
+        Double bestValue = null;
+
+        for (GroupRollups.GroupStats g : groupRollups.groups()) {
+            Double v = g.group() == null ? null : g.average();
+
+            groupLabels.add(g.group());
+            groupValues.add(v);
+            absByGroup.add(g.group() == null ? 0 : g.absences());
+
+            if (v != null && (bestValue == null || v > bestValue)) {
+                bestValue = v;
+                bestLabel = g.group();
+            }
+        }
+
+        return new AnalyticsSnapshot(
+                withFinals > 0,
+                withFinals == 0 ? null : round2(averageCents / 100.0 / withFinals),
+                withFinals,
+                subjects.size(),
+                Collections.unmodifiableMap(finalAverages),
+                PIE_LABELS,
+                List.of(pie[0], pie[1], pie[2], pie[3]),
+                Collections.unmodifiableList(subjectsLabels),
+                Collections.unmodifiableList(subjectsValues),
+                Collections.unmodifiableList(groupLabels),
+                Collections.unmodifiableList(groupValues),
+                Collections.unmodifiableList(absByGroup),
+                bestLabel,
+                bestValue,
+                HIST_LABELS,
+                List.of(hist[0], hist[1], hist[2], hist[3], hist[4], hist[5]),
+                rows(top),
+                rows(low),
+                absentLeaders
+        );
+    }
+
+    // Первые пять из рейтинга — строками таблицы аналитики
+    private static List<Map<String, Object>> rows(NavigableSet<Member> ranked) {
+        List<Map<String, Object>> rows = new ArrayList<>(5);
+        Iterator<Member> it = ranked.iterator();
+        while (rows.size() < 5 && it.hasNext()) {
+            Member m = it.next();
+            rows.add(studentRow(m.student(), "finalScore", m.average()));
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    // ================= UTIL =================
+
+    static final List<String> PIE_LABELS = List.of("0–50", "50–70", "70–85", "85–100");
+    static final List<String> HIST_LABELS =
+            List.of("0–50", "50–60", "60–70", "70–80", "80–90", "90–100");
+
+    // Строка таблицы аналитики; группа может быть null (Map.of его не допускает)
+    private static Map<String, Object> studentRow(Student s, String key, Object value) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("fullname", s.getFullname());
+        row.put("groupName", s.getGroupName());
+        row.put(key, value);
+        return Collections.unmodifiableMap(row);
+    }
+
+    // treat null or non-positive FINAL as "no final" -> student has no average
+    private static Double finalAverage(Map<String, Row> st) {
+        if (st == null) return null;
+
+        double sum = 0;
+        int count = 0;
+
+        for (Row r : st.values()) {
+            Double fin = r.f().finalScore();
+            if (fin == null || fin <= 0) return null;
+            sum += fin;
+            count++;
+        }
+
+        return count == 0 ? null : round2(sum / count);
+    }
+
+    private static int pieBucket(double avg) {
+        if (avg <= 50) return 0;
+        if (avg <= 70) return 1;
+        if (avg <= 85) return 2;
+        return 3;
+    }
+
+    private static int histBucket(double avg) {
+        if (avg < 50) return 0;
+        if (avg < 60) return 1;
+        if (avg < 70) return 2;
+        if (avg < 80) return 3;
+        if (avg < 90) return 4;
+        return 5;
+    }
+
+    private static long cents(double v) {
+        return Math.round(v * 100.0);
+    }
+
+    private static double round2(double v) {
+        return Math.round(v * 100.0) / 100.0;
+    }
+
+    // ================= METRICS =================
+
+    public synchronized int getStudentCount() { return members.size(); }
+    public long getRefreshes() { return refreshes.get(); }
+}
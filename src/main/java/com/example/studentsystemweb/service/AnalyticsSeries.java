@@ -0,0 +1,38 @@
+package com.example.studentsystemweb.service;
+
+import java.util.List;
+
+/**
+ * Серии графиков аналитики преподавателя — то, что уходит в /teacher/analytics.json
+ * и в chartData страницы. Размер не зависит от числа студентов: без средних
+ * по каждому студенту и таблиц топа.
+ */
+public record AnalyticsSeries(
+        boolean hasFinals,
+        Double overallAverage,
+
+        List<String> subjectsLabels,
+        List<Double> subjectsValues,
+
+        List<String> groupLabels,
+        List<Double> groupValues,
+        List<Integer> absByGroupValues,
+
+        List<String> histLabels,
+        List<Integer> histValues
+) {
+
+    public static AnalyticsSeries of(AnalyticsSnapshot a) {
+        return new AnalyticsSeries(
+                a.hasFinals(),
+                a.overallAverage(),
+                a.subjectsLabels(),
+                a.subjectsValues(),
+                a.groupLabels(),
+                a.groupValues(),
+                a.absByGroupValues(),
+                a.histLabels(),
+                a.histValues()
+        );
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.studentsystemweb.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Все данные страницы аналитики преподавателя, посчитанные за один проход
+ * по студентам. Неизменяемый: списки и карты только для чтения.
+ */
+public record AnalyticsSnapshot(
+        boolean hasFinals,
+        Double overallAverage,
+        int studentsWithFinals,
+        int subjectsCount,
+
+        // studentId -> средний FINAL (null, если итогов нет)
+        Map<Integer, Double> finalAverages,
+
+        List<String> pieLabels,
+        List<Integer> pieData,
+
+        List<String> subjectsLabels,
+        List<Double> subjectsValues,
+
+        List<String> groupLabels,
+        List<Double> groupValues,
+        List<Integer> absByGroupValues,
+        String bestGroupLabel,
+        Double bestGroupValue,
+
+        List<String> histLabels,
+        List<Integer> histValues,
+
+        List<Map<String, Object>> topStudents,
+        List<Map<String, Object>> lowStudents,
+        List<Map<String, Object>> absentLeaders
+) {
+}
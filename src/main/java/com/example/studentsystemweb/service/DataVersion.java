@@ -0,0 +1,40 @@
+package com.example.studentsystemweb.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.studentsystemweb.event.GradesChangedEvent;
+import com.example.studentsystemweb.event.StudentsChangedEvent;
+
+/**
+ * Глобальная версия данных: увеличивается после коммита любой записи оценок
+ * или студентов. Служит ETag для JSON-аналитики — проверка If-None-Match
+ * не требует обращения к БД.
+ */
+@Service
+public class DataVersion {
+
+    // Отличает версии разных запусков: счётчик после рестарта начинается заново
+    private final long boot = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public String etag() {
+        return "\"" + Long.toString(boot, 36) + "-" + version.get() + "\"";
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGradesChanged(GradesChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsChanged(StudentsChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.studentsystemweb.service;
+
+import java.util.Collection;
+
+import org.springframework.stereotype.Service;
+
+import com.example.studentsystemweb.model.JournalSheet;
+
+/**
+ * Единая формула итогов журнала: tk1/tk2 → r1/r2 → dopusk → FINAL.
+ *
+ * Правила ячеек недели:
+ *   Н.П (флаг 2) — исключается из среднего;
+ *   Н   (флаг 1) — учитывается как 0;
+ *   отрицательное значение без флага — не учитывается;
+ *   отсутствующая ячейка — 0 (как при пустом сохранении журнала).
+ * РК/экзамен с флагом Н/Н.П или отрицательные — 0.
+ *
+ * Результат пишется в слоты итогов листа. Пакетный вызов не выделяет
+ * память на каждый лист — рабочие массивы общие на весь вызов.
+ */
+@Service
+public class FinalScoreCalculator {
+
+    private static final int TYPES = JournalSheet.TYPES.length;
+    private static final int WEEKS = JournalSheet.WEEKS;
+
+    public void score(JournalSheet sheet) {
+        score(sheet, new double[WEEKS], new boolean[WEEKS]);
+    }
+
+    public void scoreAll(Collection<JournalSheet> sheets) {
+        double[] weekAvg = new double[WEEKS];
+        boolean[] has = new boolean[WEEKS];
+
+        for (JournalSheet sheet : sheets) {
+            score(sheet, weekAvg, has);
+        }
+    }
+
+    // ------------------------------------------------------
+    // Расчёт одного листа на переданных рабочих массивах
+    // ------------------------------------------------------
+    private void score(JournalSheet sheet, double[] weekAvg, boolean[] has) {
+
+        // Среднее за неделю
+        for (int w = 0; w < WEEKS; w++) {
+            double sum = 0;
+            int c = 0;
+
+            for (int t = 0; t < TYPES; t++) {
+
+                int i = w * TYPES + t;
+                byte flag = sheet.flag(i);
+
+                if (flag == 2) continue; // Н.П — исключено из расчётов
+
+                if (flag == 1) { // Н — 0 баллов
+                    c++;
+                    continue;
+                }
+
+                double value = sheet.hasValue(i) ? sheet.value(i) : 0.0;
+
+                if (value >= 0) {
+                    sum += value;
+                    c++;
+                }
+            }
+
+            has[w] = c > 0;
+            weekAvg[w] = c > 0 ? sum / c : 0.0;
+        }
+
+        double tk1 = avgRange(weekAvg, has, 0, 6);
+        double tk2 = avgRange(weekAvg, has, 7, 14);
+
+        // РК и Экзамен
+        double rk1 = examValue(sheet, JournalSheet.RK1);
+        double rk2 = examValue(sheet, JournalSheet.RK2);
+        double exam = examValue(sheet, JournalSheet.EXAM);
+
+        double r1 = tk1 * 0.6 + rk1 * 0.4;
+        double r2 = tk2 * 0.6 + rk2 * 0.4;
+
+        double dopusk = (r1 + r2) / 2.0;
+        double finalScore = dopusk * 0.6 + exam * 0.4;
+
+        sheet.setTotal(JournalSheet.TK1, round(tk1));
+        sheet.setTotal(JournalSheet.TK2, round(tk2));
+        sheet.setTotal(JournalSheet.R1, round(r1));
+        sheet.setTotal(JournalSheet.R2, round(r2));
+        sheet.setTotal(JournalSheet.DOPUSK, round(dopusk));
+        sheet.setTotal(JournalSheet.FINAL, round(finalScore));
+    }
+
+    // ------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------
+    private static double examValue(JournalSheet sheet, int i) {
+
+        byte flag = sheet.examFlag(i);
+        if (flag == 1 || flag == 2 || !sheet.hasExam(i)) return 0.0;
+
+        double val = sheet.exam(i);
+        return val < 0 ? 0.0 : val;
+    }
+
+    private static double avgRange(double[] arr, boolean[] has, int from, int to) {
+        double sum = 0;
+        int cnt = 0;
+
+        for (int i = from; i <= to; i++) {
+            if (has[i]) {
+                sum += arr[i];
+                cnt++;
+            }
+        }
+        return cnt == 0 ? 0.0 : sum / cnt;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100.0) / 100.0;
+    }
+}
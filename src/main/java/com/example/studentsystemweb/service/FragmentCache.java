@@ -0,0 +1,142 @@
+package com.example.studentsystemweb.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+/**
+ * Кеш отрендеренных фрагментов Thymeleaf (таблицы и данные графиков аналитики).
+ *
+ * Ключ — шаблон, фрагмент, параметры, локаль и версия данных (DataVersion):
+ * любое изменение оценок или студентов делает старые записи недостижимыми,
+ * а при первой записи новой версии они удаляются. Размер ограничен суммарной
+ * длиной HTML (app.cache.fragments.max-chars), вытеснение — LRU.
+ *
+ * Модель фрагмента передаётся поставщиком и вычисляется только при промахе.
+ * Фрагменты рендерятся без веб-контекста — ссылки @{...} в них не используются.
+ */
+@Service
+public class FragmentCache {
+
+    private record Key(String template, String fragment, String params, Locale locale, long version) {}
+
+    private final ITemplateEngine templateEngine;
+    private final DataVersion dataVersion;
+    private final long maxChars;
+
+    // access-order: первой идёт давно не читанная запись
+    private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long chars;
+    private long latestVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+
+    public FragmentCache(ITemplateEngine templateEngine,
+                         DataVersion dataVersion,
+                         @Value("${app.cache.fragments.max-chars:4194304}") long maxChars) {
+        this.templateEngine = templateEngine;
+        this.dataVersion = dataVersion;
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * HTML фрагмента template :: fragment. params — всё, от чего зависит
+     * результат помимо версии данных (например, выбранная группа); может быть "".
+     */
+    public String render(String template, String fragment, String params, Locale locale,
+                         Supplier<Map<String, Object>> model) {
+
+        // Версия — до чтения данных: если они изменятся во время рендера,
+        // запись ляжет под старой версией и больше не будет прочитана
+        Key key = new Key(template, fragment, params, locale, dataVersion.current());
+
+        synchronized (this) {
+            String html = entries.get(key);
+            if (html != null) {
+                hits.incrementAndGet();
+                return html;
+            }
+        }
+        misses.incrementAndGet();
+
+        long start = System.nanoTime();
+        String html = templateEngine.process(template, Set.of(fragment), new Context(locale, model.get()));
+        renderNanos.addAndGet(System.nanoTime() - start);
+
+        put(key, html);
+        return html;
+    }
+
+    private synchronized void put(Key key, String html) {
+        if (html.length() > maxChars || key.version() < latestVersion) return;
+
+        if (key.version() > latestVersion) {
+            latestVersion = key.version();
+            entries.entrySet().removeIf(e -> {
+                if (e.getKey().version() >= latestVersion) return false;
+                chars -= e.getValue().length();
+                return true;
+            });
+        }
+
+        String old = entries.put(key, html);
+        chars += html.length() - (old == null ? 0 : old.length());
+
+        Iterator<String> it = entries.values().iterator();
+        while (chars > maxChars && it.hasNext()) {
+            chars -= it.next().length();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        chars = 0;
+    }
+
+    /** Поставщик, который вычисляет значение один раз — общая модель для нескольких фрагментов. */
+    public static <T> Supplier<T> memoize(Supplier<T> supplier) {
+        return new Supplier<>() {
+            private T value;
+            private boolean done;
+
+            @Override
+            public synchronized T get() {
+                if (!done) {
+                    value = supplier.get();
+                    done = true;
+                }
+                return value;
+            }
+        };
+    }
+
+    // ================= METRICS =================
+
+    public synchronized int getSize() { return entries.size(); }
+    public synchronized long getChars() { return chars; }
+    public long getMaxChars() { return maxChars; }
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+    public long getRenderMillis() { return TimeUnit.NANOSECONDS.toMillis(renderNanos.get()); }
+
+    public double getHitRate() {
+        long h = hits.get(), total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.studentsystemweb.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.studentsystemweb.model.JournalSheet;
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.repository.GradeRepository;
+
+/**
+ * Выгрузка журналов в CSV: одна строка на (студент, предмет).
+ *
+ * Строки читаются курсором GradeRepository.streamSheets и сразу пишутся
+ * в переданный Writer — объём памяти не зависит от размера когорты.
+ */
+@Service
+public class GradeExportService {
+
+    private static final char SEP = ';';
+
+    private final GradeRepository gradeRepository;
+
+    public GradeExportService(GradeRepository gradeRepository) {
+        this.gradeRepository = gradeRepository;
+    }
+
+    /**
+     * group == null — вся когорта. Одна транзакция чтения — согласованный снимок.
+     */
+    @Transactional(readOnly = true)
+    public void exportCsv(String group, Writer out) throws IOException {
+
+        StringBuilder line = new StringBuilder(512);
+
+        line.append("student_id").append(SEP).append("fullname").append(SEP)
+                .append("group").append(SEP).append("subject");
+        for (String key : JournalSheet.CELL_KEYS) line.append(SEP).append(key);
+        for (String key : JournalSheet.EXAM_KEYS) line.append(SEP).append(key);
+        for (String key : JournalSheet.TOTAL_KEYS) line.append(SEP).append(key);
+        out.write(line.append('\n').toString());
+
+        try {
+            gradeRepository.streamSheets(group, (student, subject, sheet) -> {
+                line.setLength(0);
+                appendRow(line, student, subject, sheet);
+                try {
+                    out.write(line.toString());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void appendRow(StringBuilder line, Student student, String subject, JournalSheet sheet) {
+
+        line.append(student.getId()).append(SEP);
+        appendText(line, student.getFullname());
+        line.append(SEP);
+        appendText(line, student.getGroupName());
+        line.append(SEP);
+        appendText(line, subject);
+
+        for (int i = 0; i < JournalSheet.CELLS; i++) {
+            line.append(SEP);
+            switch (sheet.flag(i)) {
+                case 1 -> line.append("Н");
+                case 2 -> line.append("Н.П");
+                default -> {
+                    if (sheet.hasValue(i) && sheet.value(i) >= 0) appendNumber(line, sheet.value(i));
+                }
+            }
+        }
+
+        for (int i = 0; i < JournalSheet.EXAM_KEYS.length; i++) {
+            line.append(SEP);
+            if (sheet.examFlag(i) != 0) line.append("Н");
+            else if (sheet.hasExam(i) && sheet.exam(i) >= 0) appendNumber(line, sheet.exam(i));
+        }
+
+        for (int i = 0; i < JournalSheet.TOTAL_KEYS.length; i++) {
+            line.append(SEP);
+            if (sheet.hasTotal(i)) appendNumber(line, sheet.total(i));
+        }
+
+        line.append('\n');
+    }
+
+    private static void appendNumber(StringBuilder line, double v) {
+        if (v == Math.rint(v)) line.append((long) v);
+        else line.append(v);
+    }
+
+    // Кавычки — только если в значении есть разделитель, кавычка или перевод строки
+    private static void appendText(StringBuilder line, String v) {
+        if (v == null) return;
+
+        boolean quote = v.indexOf(SEP) >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0;
+        if (!quote) {
+            line.append(v);
+            return;
+        }
+        line.append('"').append(v.replace("\"", "\"\"")).append('"');
+    }
+}
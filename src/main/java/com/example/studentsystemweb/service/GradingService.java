@@ -1,19 +1,37 @@
 package com.example.studentsystemweb.service;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.studentsystemweb.event.GradesChangedEvent;
+import com.example.studentsystemweb.model.JournalSheet;
+import com.example.studentsystemweb.model.SheetKey;
+import com.example.studentsystemweb.repository.FinalsRepository;
 import com.example.studentsystemweb.repository.GradeRepository;
+import com.example.studentsystemweb.repository.JournalSheetCodec;
 
 @Service
 public class GradingService {
 
     private final GradeRepository gradeRepository;
-
-    public GradingService(GradeRepository gradeRepository) {
+    private final FinalsRepository finalsRepository;
+    private final FinalScoreCalculator calculator;
+    private final ApplicationEventPublisher events;
+
+    public GradingService(GradeRepository gradeRepository,
+                          FinalsRepository finalsRepository,
+                          FinalScoreCalculator calculator,
+                          ApplicationEventPublisher events) {
         this.gradeRepository = gradeRepository;
+        this.finalsRepository = finalsRepository;
+        this.calculator = calculator;
+        this.events = events;
     }
 
    
@@ -22,186 +40,144 @@ public class GradingService {
         return map != null ? map : new LinkedHashMap<>();
     }
 
-   
+    // ------------------------------------------------------
+    // Таблица журнала. Лист без итогов (перенесён миграцией и ещё
+    // ждёт очереди) показывается с итогами по формуле, без записи
+    // ------------------------------------------------------
     public Map<String, Double> getJournalTable(int studentId, String subject) {
+        JournalSheet sheet = gradeRepository.findSheet(studentId, subject);
+        if (!sheet.hasTotal(JournalSheet.FINAL)) calculator.score(sheet);
+        return toJournalTable(sheet);
+    }
 
-        Map<String, Double> src = gradeRepository.getComponentMap(studentId, subject);
-        if (src == null) src = new LinkedHashMap<>();
+    // ------------------------------------------------------
+    // Таблица для шаблона журнала по уже загруженному листу
+    // ------------------------------------------------------
+    public Map<String, Double> toJournalTable(JournalSheet src) {
 
         Map<String, Double> table = new LinkedHashMap<>();
 
-        String[] types = {"lecture", "sro", "lab"};
-
-        
-        for (int week = 1; week <= 15; week++) {
-            for (String t : types) {
-
-                String key = "week" + week + "_" + t;
-                String flagKey = key + "_flag";
+        for (int i = 0; i < JournalSheet.CELLS; i++) {
 
-                double flag = src.getOrDefault(flagKey, 0.0);
-                double value = src.getOrDefault(key, 0.0);
+            double flag = src.flag(i);
+            double value = src.hasValue(i) ? src.value(i) : 0.0;
 
-                table.put(flagKey, flag);
+            table.put(JournalSheet.CELL_FLAG_KEYS[i], flag);
 
-                if (flag == 1.0) {
-                    table.put(key, -1.0);  // Н
-                } else if (flag == 2.0) {
-                    table.put(key, -2.0);  // Н.П
-                } else {
-                    table.put(key, value);
-                }
+            if (flag == 1.0) {
+                table.put(JournalSheet.CELL_KEYS[i], -1.0);  // Н
+            } else if (flag == 2.0) {
+                table.put(JournalSheet.CELL_KEYS[i], -2.0);  // Н.П
+            } else {
+                table.put(JournalSheet.CELL_KEYS[i], value);
             }
         }
 
         // РК / Экзамены
-        for (String k : new String[]{"rk1", "rk2", "exam"}) {
-            String flagKey = k + "_flag";
+        for (int i = 0; i < JournalSheet.EXAM_KEYS.length; i++) {
 
-            double flag = src.getOrDefault(flagKey, 0.0);
-            double value = src.getOrDefault(k, 0.0);
+            double flag = src.examFlag(i);
+            double value = src.hasExam(i) ? src.exam(i) : 0.0;
 
             if (flag == 2.0) flag = 1.0; // экзамен не может быть Н.П
 
-            table.put(flagKey, flag);
+            table.put(JournalSheet.EXAM_FLAG_KEYS[i], flag);
 
             if (flag == 1.0) {
-                table.put(k, -1.0);
+                table.put(JournalSheet.EXAM_KEYS[i], -1.0);
             } else {
-                table.put(k, value);
+                table.put(JournalSheet.EXAM_KEYS[i], value);
             }
         }
 
         // Итоги
-        for (String k : new String[]{"tk1", "tk2", "r1", "r2", "dopusk", "FINAL"}) {
-            table.put(k, src.getOrDefault(k, 0.0));
+        for (int i = 0; i < JournalSheet.TOTAL_KEYS.length; i++) {
+            table.put(JournalSheet.TOTAL_KEYS[i], src.hasTotal(i) ? src.total(i) : 0.0);
         }
 
         return table;
     }
 
     // ------------------------------------------------------
-    // Сохранение флага (0/1/2)
+    // Сохранение всего листа журнала одной транзакцией:
+    // ячейки + флаги уходят одним пакетом, итоги листа и строка
+    // finals пересчитываются в той же транзакции — журнал после
+    // редиректа уже показывает новые итоги
     // ------------------------------------------------------
-    public void setFlagValue(int studentId, String subject, String workType, double flagValue) {
-        gradeRepository.upsertComponent(studentId, subject, workType + "_flag", flagValue);
-    }
+    @Transactional
+    public void saveJournal(int studentId, String subject, JournalSheet sheet) {
 
-    // ------------------------------------------------------
-    // Сохранение значения компонента
-    // ------------------------------------------------------
-    public void setComponent(int studentId, String subject, String workType, Double grade) {
-        if (grade == null) return;
+        // Нормализуем уже закодированную копию — лист вызывающего не меняется
+        Map<String, Double> comp = JournalSheetCodec.encode(sheet);
+        for (String key : JournalSheet.CELL_KEYS) comp.computeIfPresent(key, (k, v) -> normalizeComponent(v));
+        for (String key : JournalSheet.EXAM_KEYS) comp.computeIfPresent(key, (k, v) -> normalizeComponent(v));
 
-        if (grade < 0) { // Н (-1) или Н.П (-2)
-            if (grade != -1.0 && grade != -2.0) grade = -1.0;
-            gradeRepository.upsertComponent(studentId, subject, workType, grade);
-            return;
-        }
+        gradeRepository.upsertComponents(studentId, subject, comp);
 
-        // Ограничиваем нормальные оценки 0..100
-        double g = Math.min(100, Math.max(0, grade));
-        gradeRepository.upsertComponent(studentId, subject, workType, g);
+        // Считаем по листу из базы: форма могла прислать не все ячейки
+        JournalSheet saved = gradeRepository.findSheet(studentId, subject);
+        calculator.score(saved);
+        comp.putAll(storeTotals(studentId, subject, saved));
+
+        events.publishEvent(new GradesChangedEvent(studentId, subject, comp));
     }
 
     // ------------------------------------------------------
-    // Пересчёт итогов 
+    // Пересчёт итогов пачки листов (воркеры TotalsRecalcQueue):
+    // листы читаются одним запросом и считаются одним scoreAll;
+    // строки finals обновляются в той же транзакции
     // ------------------------------------------------------
-    public void recalcTotals(int studentId, String subject) {
-
-        Map<String, Double> comp = gradeRepository.getComponentMap(studentId, subject);
-        if (comp == null) comp = new LinkedHashMap<>();
-
-        String[] types = {"lecture", "sro", "lab"};
-
-        double[] weekAvg = new double[15];
-        int[] cnt = new int[15];
-
-        // Среднее за неделю
-        for (int w = 1; w <= 15; w++) {
-            double sum = 0;
-            int c = 0;
+    @Transactional
+    public void recalcTotals(Collection<SheetKey> keys) {
 
-            for (String t : types) {
+        Map<SheetKey, JournalSheet> sheets = gradeRepository.findSheets(keys);
+        calculator.scoreAll(sheets.values());
 
-                String key = "week" + w + "_" + t;
-                String flagKey = key + "_flag";
-
-                double flag = comp.getOrDefault(flagKey, 0.0);
-                double value = comp.getOrDefault(key, 0.0);
-
-                if (flag == 2.0) continue; // Н.П — исключено из расчётов
-
-                if (flag == 1.0) { // Н — 0 баллов
-                    c++;
-                    continue;
-                }
-
-                if (value >= 0) {
-                    sum += value;
-                    c++;
-                }
-            }
-
-            if (c > 0) {
-                weekAvg[w - 1] = sum / c;
-                cnt[w - 1] = 1;
-            }
+        for (Map.Entry<SheetKey, JournalSheet> e : sheets.entrySet()) {
+            int studentId = e.getKey().studentId();
+            String subject = e.getKey().subject();
+            events.publishEvent(new GradesChangedEvent(studentId, subject, storeTotals(studentId, subject, e.getValue())));
         }
+    }
 
-        double tk1 = avgRange(weekAvg, cnt, 0, 6);
-        double tk2 = avgRange(weekAvg, cnt, 7, 14);
-
-        // РК и Экзамен
-        double rk1 = prepareExamValue(comp, "rk1");
-        double rk2 = prepareExamValue(comp, "rk2");
-        double exam = prepareExamValue(comp, "exam");
-
-        double r1 = tk1 * 0.6 + rk1 * 0.4;
-        double r2 = tk2 * 0.6 + rk2 * 0.4;
-
-        double dopusk = (r1 + r2) / 2.0;
-        double finalScore = dopusk * 0.6 + exam * 0.4;
-
-        // Сохранение
-        gradeRepository.upsertComponent(studentId, subject, "tk1", round(tk1));
-        gradeRepository.upsertComponent(studentId, subject, "tk2", round(tk2));
-        gradeRepository.upsertComponent(studentId, subject, "r1", round(r1));
-        gradeRepository.upsertComponent(studentId, subject, "r2", round(r2));
-        gradeRepository.upsertComponent(studentId, subject, "dopusk", round(dopusk));
-        gradeRepository.upsertComponent(studentId, subject, "FINAL", round(finalScore));
+    @Transactional
+    public void recalcTotals(int studentId, String subject) {
+        recalcTotals(List.of(new SheetKey(studentId, subject)));
     }
 
     // ------------------------------------------------------
-    // Helper расчёта экзамена / РК
+    // Итоги студента для его страниц: из таблицы finals; листы,
+    // ещё не посчитанные очередью (FINAL = NULL), — расчётом на лету
     // ------------------------------------------------------
-    private double prepareExamValue(Map<String, Double> comp, String key) {
-
-        double val = comp.getOrDefault(key, 0.0);
-        double flag = comp.getOrDefault(key + "_flag", 0.0);
-
-        if (flag == 1.0 || flag == 2.0 || val < 0) return 0.0;
+    public StudentFinals loadStudentFinals(int studentId) {
+        return StudentFinals.of(studentId, finalsRepository.findByStudent(studentId),
+                subject -> scoreFinal(studentId, subject));
+    }
 
-        return val;
+    // FINAL листа по формуле, без записи
+    public double scoreFinal(int studentId, String subject) {
+        JournalSheet sheet = gradeRepository.findSheet(studentId, subject);
+        calculator.score(sheet);
+        return sheet.total(JournalSheet.FINAL);
     }
 
     // ------------------------------------------------------
     // Helpers
     // ------------------------------------------------------
-    private double avgRange(double[] arr, int[] has, int from, int to) {
-        double sum = 0;
-        int cnt = 0;
-
-        for (int i = from; i <= to; i++) {
-            if (has[i] == 1) {
-                sum += arr[i];
-                cnt++;
-            }
-        }
-        return cnt == 0 ? 0.0 : sum / cnt;
+
+    // Итоги посчитанного листа -> grades и finals; возвращает записанные итоги
+    private Map<String, Double> storeTotals(int studentId, String subject, JournalSheet scored) {
+        Map<String, Double> totals = JournalSheetCodec.encodeTotals(scored);
+        gradeRepository.upsertComponents(studentId, subject, totals);
+        finalsRepository.refresh(studentId, subject);
+        return totals;
     }
 
-    private double round(double v) {
-        return Math.round(v * 100.0) / 100.0;
+    private double normalizeComponent(double grade) {
+        if (grade < 0) { // Н (-1) или Н.П (-2)
+            return (grade == -1.0 || grade == -2.0) ? grade : -1.0;
+        }
+        // Ограничиваем нормальные оценки 0..100
+        return Math.min(100, Math.max(0, grade));
     }
 }
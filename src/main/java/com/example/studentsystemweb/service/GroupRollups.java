@@ -0,0 +1,248 @@
+package com.example.studentsystemweb.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.studentsystemweb.event.GradesChangedEvent;
+import com.example.studentsystemweb.event.StudentsChangedEvent;
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.model.SubjectFinal;
+import com.example.studentsystemweb.repository.FinalsRepository;
+import com.example.studentsystemweb.repository.StudentRepository;
+
+/**
+ * Накопительные агрегаты по группам для групповых графиков:
+ * сумма средних итоговых, число студентов с итогами, сумма пропусков.
+ *
+ * Строятся при старте по таблице finals. Дальше обновляется только вклад
+ * затронутого студента: после пересчёта итогов (событие с FINAL) его строки
+ * finals перечитываются, старый вклад вычитается из группы, новый —
+ * прибавляется; добавление и удаление студентов — по StudentsChangedEvent.
+ *
+ * Строки finals перечитываются вне монитора — читатели групп ждут только
+ * само применение вклада. Каждое чтение получает номер; вклад из более
+ * раннего чтения не затирает применённый более поздний.
+ *
+ * Слушатели идут раньше DataVersion: кешированный фрагмент с новой версией
+ * не увидит старых сумм.
+ */
+@Service
+public class GroupRollups {
+
+    /** Агрегаты одной группы; average — как в аналитике преподавателя, averageAll — как на панели администратора. */
+    public record GroupStats(String group, int students, int withFinals,
+                             Double average, double averageAll, int absences) {}
+
+    /**
+     * Вклад студента. average — средний FINAL, если выставлены все итоги (иначе null),
+     * averageAll — средний по итогам > 0 (0, если их нет); read — номер чтения finals.
+     */
+    private record Member(int id, String group, Double average, double averageAll, int absences, long read) {
+
+        static Member of(int id, String group, List<SubjectFinal> finals, long read) {
+            double sum = 0;
+            int count = 0;
+            double positiveSum = 0;
+            int positive = 0;
+            int absences = 0;
+
+            for (SubjectFinal f : finals) {
+                Double fin = f.finalScore();
+                if (fin != null && fin > 0) {
+                    positiveSum += fin;
+                    positive++;
+                }
+                sum += fin == null ? 0 : fin;
+                count++;
+                absences += f.absences();
+            }
+
+            Double average = count == 0 || positive < count ? null : round2(sum / count);
+            return new Member(id, group, average, positive == 0 ? 0 : positiveSum / positive, absences, read);
+        }
+    }
+
+    private static final class Rollup {
+        final NavigableSet<Integer> ids = new TreeSet<>();
+        int withFinals;
+        double finalSum;
+        double allSum;
+        int absences;
+
+        void add(Member m, int sign) {
+            if (sign > 0) ids.add(m.id()); else ids.remove(m.id());
+            if (m.average() != null) {
+                withFinals += sign;
+                finalSum += sign * m.average();
+            }
+            allSum += sign * m.averageAll();
+            absences += sign * m.absences();
+        }
+    }
+
+    private final StudentRepository studentRepository;
+    private final FinalsRepository finalsRepository;
+
+    private final Map<Integer, Member> members = new HashMap<>();
+    // группы по имени, без группы (null) — первой, как в getGroupLabels
+    private final Map<String, Rollup> groups = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private volatile boolean built;
+
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    public GroupRollups(StudentRepository studentRepository,
+                        FinalsRepository finalsRepository) {
+        this.studentRepository = studentRepository;
+        this.finalsRepository = finalsRepository;
+    }
+
+    // ================= BUILD / UPDATE =================
+
+    // Сборка держит монитор: события, пришедшие во время неё, применятся после
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void build() {
+        members.clear();
+        groups.clear();
+
+        long read = reads.incrementAndGet();
+        Map<Integer, List<SubjectFinal>> finals = new HashMap<>();
+        for (SubjectFinal f : finalsRepository.findAll()) {
+            finals.computeIfAbsent(f.studentId(), k -> new ArrayList<>()).add(f);
+        }
+        for (Student s : studentRepository.findAll()) {
+            put(Member.of(s.getId(), s.getGroupName(), finals.getOrDefault(s.getId(), List.of()), read));
+        }
+        built = true;
+    }
+
+    // Итоги пишет TotalsRecalcQueue — событие с FINAL приходит после коммита строки finals
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGradesChanged(GradesChangedEvent event) {
+        if (!built || !event.components().containsKey("FINAL")) return;
+
+        int id = event.studentId();
+        long read = reads.incrementAndGet();
+
+        Member known;
+        synchronized (this) {
+            known = members.get(id);
+        }
+
+        String group;
+        if (known != null) {
+            group = known.group();
+        } else {
+            try {
+                group = studentRepository.findById(id).getGroupName();
+            } catch (EmptyResultDataAccessException e) {
+                return; // студента уже удалили
+            }
+        }
+
+        List<SubjectFinal> finals = finalsRepository.findByStudent(id);
+
+        synchronized (this) {
+            Member current = members.get(id);
+            if (current == null && known != null) return; // удалили, пока читали
+            if (current != null && current.read() > read) return; // уже применено более позднее чтение
+            put(Member.of(id, group, finals, read));
+        }
+        refreshes.incrementAndGet();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStudentsChanged(StudentsChangedEvent event) {
+        if (!built) return; // построится целиком уже с этими данными
+
+        for (Integer id : event.deletedIds()) remove(id);
+        for (Student s : event.added()) put(Member.of(s.getId(), s.getGroupName(), List.of(), reads.incrementAndGet()));
+    }
+
+    private void put(Member m) {
+        remove(m.id());
+        members.put(m.id(), m);
+        groups.computeIfAbsent(m.group(), g -> new Rollup()).add(m, 1);
+    }
+
+    private void remove(int id) {
+        Member m = members.remove(id);
+        if (m == null) return;
+
+        Rollup r = groups.get(m.group());
+        r.add(m, -1);
+        if (r.ids.isEmpty()) groups.remove(m.group());
+    }
+
+    // ================= READ =================
+
+    /** Все группы: без группы (null) первой, дальше по имени. */
+    public synchronized List<GroupStats> groups() {
+        ensureBuilt();
+        List<GroupStats> list = new ArrayList<>(groups.size());
+        for (Map.Entry<String, Rollup> e : groups.entrySet()) list.add(stats(e.getKey(), e.getValue()));
+        return list;
+    }
+
+    /** Агрегаты группы или null, если в ней нет студентов. */
+    public synchronized GroupStats group(String group) {
+        ensureBuilt();
+        Rollup r = groups.get(group);
+        return r == null ? null : stats(group, r);
+    }
+
+    /** Средний балл групп по всем студентам (без итогов — 0) в порядке первого студента группы. */
+    public synchronized Map<String, Double> averagesByFirstStudent() {
+        ensureBuilt();
+        List<Map.Entry<String, Rollup>> entries = new ArrayList<>(groups.entrySet());
+        entries.sort(Comparator.comparing(e -> e.getValue().ids.first()));
+
+        Map<String, Double> map = new LinkedHashMap<>();
+        for (Map.Entry<String, Rollup> e : entries) map.put(e.getKey(), stats(e.getKey(), e.getValue()).averageAll());
+        return map;
+    }
+
+    private void ensureBuilt() {
+        if (!built) build();
+    }
+
+    private static GroupStats stats(String group, Rollup r) {
+        return new GroupStats(
+                group,
+                r.ids.size(),
+                r.withFinals,
+                r.withFinals == 0 ? null : round2(r.finalSum / r.withFinals),
+                r.allSum / r.ids.size(),
+                r.absences
+        );
+    }
+
+    private static double round2(double v) {
+        return Math.round(v * 100.0) / 100.0;
+    }
+
+    // ================= METRICS =================
+
+    public synchronized int getGroupCount() { return groups.size(); }
+    public synchronized int getStudentCount() { return members.size(); }
+    public long getRefreshes() { return refreshes.get(); }
+}
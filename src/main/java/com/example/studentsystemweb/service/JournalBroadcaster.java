@@ -0,0 +1,256 @@
+package com.example.studentsystemweb.service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.studentsystemweb.event.GradesChangedEvent;
+import com.example.studentsystemweb.repository.StudentRepository;
+
+/**
+ * SSE-рассылка изменений журнала открытым страницам преподавателя.
+ *
+ * Подключение — асинхронный SseEmitter: пока событий нет, поток сервлета
+ * не занят. Когда после коммита меняется FINAL, поток рассылки собирает
+ * дельту (студент, предмет, FINAL, средний студента и группы) и кладёт её
+ * в очередь каждого подписчика.
+ *
+ * Запись в сокет блокирующая, поэтому у каждого подписчика своя очередь,
+ * которую разбирает пул отправки: зависший клиент держит один поток пула,
+ * а не рассылку и heartbeat остальных. Подписчик отключается, если его
+ * очередь переполнена (app.sse.max-pending) или одна отправка длится
+ * дольше app.sse.send-timeout-ms, а также при первой неудачной отправке.
+ */
+@Service
+public class JournalBroadcaster implements InitializingBean, DisposableBean {
+
+    private final TeacherService teacherService;
+    private final StudentRepository studentRepository;
+    private final DataVersion dataVersion;
+
+    private final long timeoutMillis;
+    private final long heartbeatSeconds;
+    private final int sendThreads;
+    private final int maxPending;
+    private final long sendTimeoutMillis;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private ScheduledExecutorService dispatcher;
+    private ThreadPoolExecutor sendPool;
+
+    public JournalBroadcaster(TeacherService teacherService,
+                              StudentRepository studentRepository,
+                              DataVersion dataVersion,
+                              @Value("${app.sse.timeout-ms:1800000}") long timeoutMillis,
+                              @Value("${app.sse.heartbeat-seconds:25}") long heartbeatSeconds,
+                              @Value("${app.sse.send-threads:4}") int sendThreads,
+                              @Value("${app.sse.max-pending:32}") int maxPending,
+                              @Value("${app.sse.send-timeout-ms:10000}") long sendTimeoutMillis) {
+        this.teacherService = teacherService;
+        this.studentRepository = studentRepository;
+        this.dataVersion = dataVersion;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeatSeconds = heartbeatSeconds;
+        this.sendThreads = Math.max(1, sendThreads);
+        this.maxPending = Math.max(1, maxPending);
+        this.sendTimeoutMillis = sendTimeoutMillis;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-sse");
+            t.setDaemon(true);
+            return t;
+        });
+        dispatcher.scheduleAtFixedRate(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        dispatcher.scheduleAtFixedRate(this::dropStalled, 1, 1, TimeUnit.SECONDS);
+
+        AtomicInteger n = new AtomicInteger();
+        sendPool = new ThreadPoolExecutor(sendThreads, sendThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), // не больше одной задачи на подписчика
+                r -> {
+                    Thread t = new Thread(r, "journal-sse-send-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        sendPool.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+        sendPool.shutdownNow();
+        for (Subscriber s : subscribers) s.close();
+        subscribers.clear();
+    }
+
+    // ================= ПОДПИСКА =================
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber s = new Subscriber(emitter);
+
+        emitter.onCompletion(() -> subscribers.remove(s));
+        emitter.onTimeout(() -> subscribers.remove(s));
+        emitter.onError(e -> subscribers.remove(s));
+
+        subscribers.add(s);
+        return emitter;
+    }
+
+    // ================= РАССЫЛКА =================
+
+    // Итоги пишет TotalsRecalcQueue — событие с FINAL приходит после его коммита
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGradesChanged(GradesChangedEvent event) {
+        Double fin = event.components().get("FINAL");
+        if (fin == null || subscribers.isEmpty()) return;
+
+        dispatcher.execute(() -> {
+            // Собирается один раз и отдаётся всем подписчикам
+            Set<DataWithMediaType> e = SseEmitter.event().name("journal")
+                    .data(delta(event.studentId(), event.subject(), fin), MediaType.APPLICATION_JSON)
+                    .build();
+            for (Subscriber s : subscribers) s.offer(e);
+        });
+    }
+
+    private Map<String, Object> delta(int studentId, String subject, double fin) {
+        Map<String, Object> d = new LinkedHashMap<>();
+        d.put("studentId", studentId);
+        d.put("subject", subject);
+        d.put("final", fin);
+        d.put("studentAverage", teacherService.getFinalAverageForStudent(studentId));
+
+        String group;
+        try {
+            group = studentRepository.findById(studentId).getGroupName();
+        } catch (EmptyResultDataAccessException e) {
+            group = null; // студента уже удалили
+        }
+
+        d.put("group", group);
+        d.put("groupAverage", group == null ? null : teacherService.getGroupFinalAverage(group));
+        d.put("version", dataVersion.current());
+        return d;
+    }
+
+    private void heartbeat() {
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        for (Subscriber s : subscribers) s.offer(ping);
+    }
+
+    // Отправка, висящая дольше send-timeout, — клиент не читает: отключаем
+    private void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber s : subscribers) {
+            long since = s.sendingSince;
+            if (since != 0 && now - since > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis)) s.drop();
+        }
+    }
+
+    // ================= ПОДПИСЧИК =================
+
+    private final class Subscriber {
+
+        final SseEmitter emitter;
+        final Queue<Set<DataWithMediaType>> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // начало текущей отправки (нс), 0 — не отправляем
+        volatile long sendingSince;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Set<DataWithMediaType> event) {
+            if (size.incrementAndGet() > maxPending) {
+                drop(); // не успевает читать
+                return;
+            }
+            pending.add(event);
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) sendPool.execute(this::drain);
+        }
+
+        // Не больше одной задачи drain на подписчика: события уходят по порядку
+        void drain() {
+            try {
+                Set<DataWithMediaType> event;
+                while ((event = pending.poll()) != null) {
+                    size.decrementAndGet();
+                    sendingSince = System.nanoTime();
+                    emitter.send(event);
+                    sent.incrementAndGet();
+                }
+            } catch (IOException | IllegalStateException ex) {
+                drop();
+            } finally {
+                sendingSince = 0;
+                scheduled.set(false);
+            }
+
+            if (!subscribers.contains(this)) {
+                close(); // отключили, пока шла отправка
+            } else if (!pending.isEmpty()) {
+                schedule();
+            }
+        }
+
+        // Только снимает подписку: методы эмиттера синхронизированы, и complete()
+        // во время зависшей отправки заблокировал бы вызывающий поток
+        void drop() {
+            if (!subscribers.remove(this)) return;
+            dropped.incrementAndGet();
+            pending.clear();
+            if (!scheduled.get()) close();
+        }
+
+        void close() {
+            try {
+                emitter.complete();
+            } catch (IllegalStateException ignored) {
+                // уже завершён
+            }
+        }
+    }
+
+    // ================= METRICS =================
+
+    public int getSubscribers() { return subscribers.size(); }
+    public long getSent() { return sent.get(); }
+    public long getDropped() { return dropped.get(); }
+    public int getSendQueued() { return sendPool.getQueue().size(); }
+}
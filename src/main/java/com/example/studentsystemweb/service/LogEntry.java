@@ -0,0 +1,14 @@
+package com.example.studentsystemweb.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись журнала действий. seq — сквозной номер в кольцевом буфере LogService.
+ */
+public record LogEntry(long seq, LocalDateTime time, String user, String message) {
+
+    @Override
+    public String toString() {
+        return time + " — " + message;
+    }
+}
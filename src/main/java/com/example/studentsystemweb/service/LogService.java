@@ -1,20 +1,275 @@
 package com.example.studentsystemweb.service;
 
-import org.springframework.stereotype.Service;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
 
+/**
+ * Журнал действий пользователей.
+ *
+ * Последние записи лежат в кольцевом буфере фиксированного размера: запись —
+ * один getAndIncrement и одна запись в ячейку, без блокировок. Параллельно
+ * записи уходят в ограниченную очередь, которую фоновый поток пачками пишет
+ * в файл с ротацией по размеру. При старте хвост файла загружается обратно
+ * в буфер, так что история переживает перезапуск.
+ */
 @Service
-public class LogService {
+public class LogService implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LogService.class);
+
+    private static final int BATCH = 256;
+
+    private final AtomicReferenceArray<LogEntry> ring;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    private final BlockingQueue<LogEntry> pendingWrites;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+
+    private Thread appender;
+    private volatile boolean running;
+
+    public LogService(@Value("${app.log.capacity:4096}") int capacity,
+                      @Value("${app.log.file:logs/activity.log}") String file,
+                      @Value("${app.log.max-bytes:10485760}") long maxBytes,
+                      @Value("${app.log.max-files:5}") int maxFiles) {
+
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1; // степень двойки >= capacity
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.pendingWrites = new ArrayBlockingQueue<>(size);
+
+        this.file = Path.of(file);
+        this.maxBytes = maxBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        restore();
+
+        running = true;
+        appender = new Thread(this::appendLoop, "activity-log-appender");
+        appender.setDaemon(true);
+        appender.start();
+    }
 
-    private final List<String> logs = new ArrayList<>();
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        appender.interrupt();
+        appender.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Остаток очереди — синхронно
+        List<LogEntry> rest = new ArrayList<>();
+        pendingWrites.drainTo(rest);
+        if (!rest.isEmpty()) write(rest);
+    }
+
+    // ================= ЗАПИСЬ =================
 
     public void add(String msg) {
-        logs.add(LocalDateTime.now() + " — " + msg);
+        add(null, msg);
+    }
+
+    public void add(String user, String msg) {
+        LogEntry e = push(LocalDateTime.now(), user, msg);
+
+        // Поток запроса не ждёт диск: если очередь полна, в файл запись не попадёт
+        if (!pendingWrites.offer(e)) dropped.incrementAndGet();
+    }
+
+    private LogEntry push(LocalDateTime time, String user, String msg) {
+        long seq = next.getAndIncrement();
+        LogEntry e = new LogEntry(seq, time, user, msg);
+        ring.set((int) (seq & mask), e);
+        return e;
     }
 
+    // ================= ЧТЕНИЕ =================
+
+    /** Все записи из буфера, от старых к новым (формат "время — сообщение"). */
     public List<String> getAll() {
-        return logs;
+        List<String> out = new ArrayList<>();
+        for (LogEntry e : recent(ring.length())) out.add(e.toString());
+        return out;
+    }
+
+    /** Последние limit записей, от старых к новым. */
+    public List<LogEntry> recent(int limit) {
+        return find(null, null, null, limit);
     }
+
+    /**
+     * Записи в полуинтервале [from, to) от пользователя user; любой фильтр может быть null.
+     * Не больше limit последних совпадений, от старых к новым.
+     */
+    public List<LogEntry> find(LocalDateTime from, LocalDateTime to, String user, int limit) {
+        long end = next.get();
+        long start = Math.max(0, end - ring.length());
+
+        List<LogEntry> out = new ArrayList<>();
+
+        // С конца: новые записи первыми, чтобы limit отсекал самые старые
+        for (long seq = end - 1; seq >= start && out.size() < limit; seq--) {
+            LogEntry e = ring.get((int) (seq & mask));
+
+            // ячейка ещё не записана или уже перезаписана более новой записью
+            if (e == null || e.seq() != seq) continue;
+
+            if (from != null && e.time().isBefore(from)) continue;
+            if (to != null && !e.time().isBefore(to)) continue;
+            if (user != null && !user.equals(e.user())) continue;
+
+            out.add(e);
+        }
+
+        Collections.reverse(out);
+        return out;
+    }
+
+    // ================= ФАЙЛ =================
+
+    private void appendLoop() {
+        List<LogEntry> batch = new ArrayList<>(BATCH);
+
+        while (running) {
+            try {
+                LogEntry first = pendingWrites.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                pendingWrites.drainTo(batch, BATCH - 1);
+                write(batch);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<LogEntry> batch) {
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null) Files.createDirectories(dir);
+
+            if (Files.exists(file) && Files.size(file) >= maxBytes) rotate();
+
+            try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (LogEntry e : batch) {
+                    w.write(format(e));
+                    w.newLine();
+                }
+            }
+            written.addAndGet(batch.size());
+
+        } catch (IOException e) {
+            dropped.addAndGet(batch.size());
+            log.warn("Журнал действий: не удалось записать {} — {}", file, e.getMessage());
+        }
+    }
+
+    // activity.log -> activity.log.1 -> ... -> activity.log.{maxFiles}
+    private void rotate() throws IOException {
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path src = rotated(i);
+            if (Files.exists(src)) Files.move(src, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rotated(int i) {
+        return file.resolveSibling(file.getFileName() + "." + i);
+    }
+
+    // Хвост текущего файла (и предыдущего, если текущий короче буфера) -> в буфер
+    private void restore() {
+        List<String> lines = new ArrayList<>();
+        try {
+            for (Path p : List.of(rotated(1), file)) {
+                if (Files.exists(p)) lines.addAll(Files.readAllLines(p, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            log.warn("Журнал действий: не удалось прочитать {} — {}", file, e.getMessage());
+            return;
+        }
+
+        for (int i = Math.max(0, lines.size() - ring.length()); i < lines.size(); i++) {
+            String[] parts = lines.get(i).split("\t", 3);
+            if (parts.length < 3) continue;
+            try {
+                push(LocalDateTime.parse(parts[0]), parts[1].isEmpty() ? null : parts[1], unescape(parts[2]));
+            } catch (DateTimeParseException ignore) {
+                // битая строка — пропускаем
+            }
+        }
+    }
+
+    // время \t пользователь \t сообщение
+    private static String format(LogEntry e) {
+        return e.time() + "\t" + (e.user() == null ? "" : escape(e.user())) + "\t" + escape(e.message());
+    }
+
+    private static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                sb.append(switch (n) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> n;
+                });
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // ================= METRICS =================
+
+    public int getCapacity() { return ring.length(); }
+    public long getTotal() { return next.get(); }
+    public int getPendingWrites() { return pendingWrites.size(); }
+    public long getWritten() { return written.get(); }
+    public long getDropped() { return dropped.get(); }
 }
@@ -0,0 +1,288 @@
+package com.example.studentsystemweb.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.sqlite.SQLiteConnection;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Параллельная загрузка независимых частей страницы.
+ *
+ * Контроллер (или сервис) запускает каждую загрузку через fork, затем
+ * дожидается всех через join — время ответа определяется самым медленным
+ * запросом, а не их суммой. Пул ограничен: при заполненной очереди задача
+ * выполняется в вызывающем потоке (обратное давление вместо отказа).
+ * Каждая загрузка ограничена app.fanout.timeout-ms; отсчёт идёт с начала
+ * выполнения задачи — ожидание в очереди ограничено её размером, а не сроком.
+ *
+ * Задачи идут вне транзакции вызывающего потока и только читают: на время
+ * задачи к потоку пула привязан один читающий коннект, через который идут
+ * все её запросы. По тайм-ауту выполняемый запрос прерывается
+ * (sqlite3_interrupt), и коннект сразу возвращается в пул. Вложенный fork
+ * изнутри загрузки (флаг в ThreadLocal) выполняется сразу, на том же
+ * коннекте, иначе пул мог бы заблокироваться сам на себя.
+ */
+@Service
+public class ParallelLoader implements InitializingBean, DisposableBean {
+
+    private static final String THREAD_PREFIX = "page-loader-";
+
+    private final DataSource dataSource;
+    private final int threads;
+    private final int queueSize;
+    private final long timeoutMillis;
+
+    private ThreadPoolExecutor pool;
+    private ScheduledThreadPoolExecutor timer;
+
+    // выставлен, пока поток выполняет загрузку (в пуле или в вызывающем потоке)
+    private final ThreadLocal<Boolean> inLoad = new ThreadLocal<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong maxTaskNanos = new AtomicLong();
+
+    public ParallelLoader(DataSource dataSource,
+                          @Value("${app.fanout.threads:0}") int threads,
+                          @Value("${app.fanout.queue-size:256}") int queueSize,
+                          @Value("${app.fanout.timeout-ms:5000}") long timeoutMillis) {
+        // по умолчанию — как пул читателей SQLite: больше потоков всё равно ждали бы коннект
+        this.dataSource = dataSource;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueSize = Math.max(1, queueSize);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        AtomicInteger n = new AtomicInteger();
+
+        pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                r -> {
+                    Thread t = new Thread(r, THREAD_PREFIX + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, executor) -> {
+                    // и после остановки пула: иначе future загрузки не завершится
+                    callerRuns.incrementAndGet();
+                    r.run();
+                });
+        pool.allowCoreThreadTimeOut(true);
+
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, THREAD_PREFIX + "timer");
+            t.setDaemon(true);
+            return t;
+        });
+        // сроки почти всегда отменяются — не держим их в очереди до срабатывания
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    // ================= FORK / JOIN =================
+
+    public <T> CompletableFuture<T> fork(String name, Supplier<T> task) {
+        submitted.incrementAndGet();
+
+        if (inLoad.get() != null) {
+            try {
+                return CompletableFuture.completedFuture(timed(task));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        Load<T> load = new Load<>(name, task);
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        pool.execute(() -> {
+            ScheduledFuture<?> deadline = null;
+            inLoad.set(Boolean.TRUE);
+            try {
+                // срок — с момента, когда задача начала выполняться
+                deadline = timer.schedule(() -> {
+                    if (result.completeExceptionally(new LoadTimeoutException(name, timeoutMillis))) {
+                        timeouts.incrementAndGet();
+                        load.cancel();
+                    }
+                }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+                result.complete(timed(load::run));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                inLoad.remove();
+                if (deadline != null) deadline.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Результат загрузки. Ошибка задачи пробрасывается как есть (например,
+     * EmptyResultDataAccessException), превышение времени — LoadTimeoutException.
+     */
+    public <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw asRuntime(unwrap(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Загрузка страницы прервана", e);
+        }
+    }
+
+    private <T> T timed(Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            T v = task.get();
+            completed.incrementAndGet();
+            return v;
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            throw e;
+        } finally {
+            maxTaskNanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) e = e.getCause();
+        return e;
+    }
+
+    private static RuntimeException asRuntime(Throwable e) {
+        if (e instanceof RuntimeException re) return re;
+        if (e instanceof Error err) throw err;
+        return new IllegalStateException(e);
+    }
+
+    // ================= LOAD =================
+
+    /**
+     * Загрузка в потоке пула. Коннект привязан к потоку как ConnectionHolder:
+     * JdbcTemplate берёт его для всех запросов задачи, а cancel() знает,
+     * какой запрос прерывать. Прерывание и возврат коннекта в пул идут под
+     * одним монитором — прерывание не попадёт в чужой запрос на том же коннекте.
+     */
+    private final class Load<T> {
+
+        private final String name;
+        private final Supplier<T> task;
+
+        private SQLiteConnection running; // guarded by this
+        private boolean cancelled;        // guarded by this
+
+        Load(String name, Supplier<T> task) {
+            this.name = name;
+            this.task = task;
+        }
+
+        T run() {
+            // caller-runs из потока с транзакцией: коннект уже привязан, работаем на нём
+            if (TransactionSynchronizationManager.hasResource(dataSource)) return task.get();
+
+            Connection con;
+            try {
+                con = dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new CannotGetJdbcConnectionException("Нет коннекта для загрузки '" + name + "'", e);
+            }
+
+            TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(con));
+            try {
+                attach(con);
+                return task.get();
+            } finally {
+                TransactionSynchronizationManager.unbindResource(dataSource);
+                detach();
+                try {
+                    con.close();
+                } catch (SQLException ignored) {
+                    // коннект уже закрыт пулом
+                }
+            }
+        }
+
+        private void attach(Connection con) {
+            SQLiteConnection sqlite = null;
+            try {
+                // через LazyConnectionDataSourceProxy: здесь же берётся целевой (читающий) коннект
+                if (con.isWrapperFor(SQLiteConnection.class)) sqlite = con.unwrap(SQLiteConnection.class);
+            } catch (SQLException e) {
+                throw new CannotGetJdbcConnectionException("Нет коннекта для загрузки '" + name + "'", e);
+            }
+
+            synchronized (this) {
+                // срок истёк, пока задача ждала коннект
+                if (cancelled) throw new LoadTimeoutException(name, timeoutMillis);
+                running = sqlite;
+            }
+        }
+
+        private synchronized void detach() {
+            running = null;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (running == null) return;
+            try {
+                running.getDatabase().interrupt();
+            } catch (SQLException ignored) {
+                // запрос уже завершился
+            }
+        }
+    }
+
+    public static class LoadTimeoutException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public LoadTimeoutException(String name, long timeoutMillis) {
+            super("Загрузка '" + name + "' не уложилась в " + timeoutMillis + " мс");
+        }
+    }
+
+    // ================= METRICS =================
+
+    public int getThreads() { return threads; }
+    public int getActive() { return pool.getActiveCount(); }
+    public int getQueued() { return pool.getQueue().size(); }
+    public long getSubmitted() { return submitted.get(); }
+    public long getCompleted() { return completed.get(); }
+    public long getFailed() { return failed.get(); }
+    public long getTimeouts() { return timeouts.get(); }
+    public long getCallerRuns() { return callerRuns.get(); }
+    public long getMaxTaskMillis() { return TimeUnit.NANOSECONDS.toMillis(maxTaskNanos.get()); }
+}
@@ -0,0 +1,35 @@
+package com.example.studentsystemweb.service;
+
+import java.util.List;
+import java.util.Map;
+
+import com.example.studentsystemweb.model.Grade;
+import com.example.studentsystemweb.model.ProgressRecord;
+import com.example.studentsystemweb.model.Student;
+
+/**
+ * Всё, что нужно страницам студента (дашборд, отчёт, журнал), прочитанное
+ * одним проходом StudentViewService. Итоги посчитаны один раз.
+ *
+ * journalSubject / journalTable заполнены только для страницы журнала.
+ */
+public record StudentDashboardView(
+        Student student,
+
+        List<Grade> grades,                  // FINAL по предметам
+        Map<String, Double> subjectAverages, // subject -> FINAL
+        Double average,
+
+        List<ProgressRecord> progress,
+        int present,
+        int absent,
+
+        List<String> subjects,
+        String journalSubject,
+        Map<String, Double> journalTable
+) {
+
+    public int attendancePercent() {
+        return (present + absent == 0) ? 0 : (int) Math.round(present * 100.0 / (present + absent));
+    }
+}
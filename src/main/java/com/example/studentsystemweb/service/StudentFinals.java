@@ -0,0 +1,56 @@
+package com.example.studentsystemweb.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import com.example.studentsystemweb.model.Grade;
+import com.example.studentsystemweb.model.SubjectFinal;
+
+/**
+ * Посчитанные итоги одного студента: FINAL по предметам, их карта и средний балл.
+ * Неизменяемы — хранятся в StudentFinalsCache и отдаются шаблонам как есть.
+ */
+public record StudentFinals(List<Grade> grades,
+                            Map<String, Double> subjectAverages,
+                            double average) {
+
+    /**
+     * Собирает итоги по строкам finals студента (в порядке предметов).
+     * Лист, FINAL которого ещё не записан (NULL), считается на лету через scoreMissing.
+     */
+    public static StudentFinals of(int studentId, List<SubjectFinal> finals,
+                                   ToDoubleFunction<String> scoreMissing) {
+        List<Grade> grades = new ArrayList<>();
+        Map<String, Double> subjectAverages = new LinkedHashMap<>();
+        double sum = 0;
+
+        for (SubjectFinal f : finals) {
+            double fin = f.finalScore() != null ? f.finalScore() : scoreMissing.applyAsDouble(f.subject());
+
+            Grade g = new Grade();
+            g.setStudentId(studentId);
+            g.setSubject(f.subject());
+            g.setWorkType("FINAL");
+            g.setGrade(fin);
+
+            grades.add(g);
+            subjectAverages.put(f.subject(), fin);
+            sum += fin;
+        }
+
+        double average = grades.isEmpty() ? 0.0 : Math.round(sum / grades.size() * 100.0) / 100.0;
+
+        return new StudentFinals(
+                Collections.unmodifiableList(grades),
+                Collections.unmodifiableMap(subjectAverages),
+                average);
+    }
+
+    public List<String> subjects() {
+        return List.copyOf(subjectAverages.keySet());
+    }
+}
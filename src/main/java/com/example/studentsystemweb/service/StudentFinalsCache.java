@@ -0,0 +1,121 @@
+package com.example.studentsystemweb.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.studentsystemweb.event.GradesChangedEvent;
+
+/**
+ * LRU-кеш посчитанных итогов студента (studentId -> StudentFinals).
+ *
+ * Запись студента сбрасывается после коммита любого изменения его оценок,
+ * остальные записи не трогаются. Значение, посчитанное по данным, прочитанным
+ * до сброса, в кеш не попадает (проверка по счётчику сбросов).
+ */
+@Service
+public class StudentFinalsCache {
+
+    private final int maxSize;
+    private final Map<Integer, StudentFinals> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public StudentFinalsCache(@Value("${app.cache.student-finals.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, StudentFinals> eldest) {
+                boolean evict = size() > StudentFinalsCache.this.maxSize;
+                if (evict) evictions.incrementAndGet();
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Итоги из кеша или посчитанные loader-ом (и сохранённые, если за время
+     * загрузки оценки студента не менялись).
+     */
+    public StudentFinals get(int studentId, Supplier<StudentFinals> loader) {
+        StudentFinals cached;
+        synchronized (entries) {
+            cached = entries.get(studentId);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        long generation = invalidations.get();
+
+        StudentFinals loaded = loader.get();
+
+        synchronized (entries) {
+            if (invalidations.get() == generation) entries.put(studentId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Для вызывающих, которые грузят данные сами: снимают generation() до чтения
+     * и потом кладут результат через put(...).
+     */
+    public StudentFinals peek(int studentId) {
+        StudentFinals cached;
+        synchronized (entries) {
+            cached = entries.get(studentId);
+        }
+        (cached != null ? hits : misses).incrementAndGet();
+        return cached;
+    }
+
+    public void put(int studentId, StudentFinals finals, long generation) {
+        synchronized (entries) {
+            if (invalidations.get() == generation) entries.put(studentId, finals);
+        }
+    }
+
+    public long generation() {
+        return invalidations.get();
+    }
+
+    public void invalidate(int studentId) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(studentId);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGradesChanged(GradesChangedEvent event) {
+        invalidate(event.studentId());
+    }
+
+    // ================= METRICS =================
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+    public long getInvalidations() { return invalidations.get(); }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double getHitRate() {
+        long h = hits.get(), m = misses.get();
+        return h + m == 0 ? 0.0 : (double) h / (h + m);
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.studentsystemweb.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.studentsystemweb.event.StudentsChangedEvent;
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.model.User;
+import com.example.studentsystemweb.repository.StudentRepository;
+import com.example.studentsystemweb.repository.UserRepository;
+
+/**
+ * Потоковый импорт студентов (и привязанных STUDENT-аккаунтов) из CSV.
+ *
+ * Файл читается построчно, строки копятся пачками по app.import.chunk-size
+ * и вставляются одной транзакцией на пачку. Ошибочные строки (пустое ФИО или
+ * группа, логин без пароля, занятый логин) пропускаются и попадают в отчёт,
+ * остальной импорт продолжается.
+ *
+ * Повтор логина внутри пачки ловится здесь же, между пачками — проверкой
+ * занятых логинов в БД: в памяти держится только текущая пачка.
+ *
+ * Формат: строка заголовка, затем данные; разделитель ',' или ';'.
+ * Колонки: fullname (ФИО), group (группа), login (логин), password (пароль);
+ * login/password необязательны.
+ */
+@Service
+public class StudentImportService {
+
+    public record RowError(long line, String message) {}
+
+    public record ImportResult(int students, int users, List<RowError> errors, long failedRows) {
+
+        public boolean errorsTruncated() {
+            return failedRows > errors.size();
+        }
+    }
+
+    private record Row(long line, String fullname, String group, String login, String password) {}
+
+    private record ChunkOutcome(int students, int users, List<RowError> rejected) {}
+
+    private static final int MAX_ERRORS = 500;
+
+    private static final Map<String, String> COLUMNS = Map.ofEntries(
+            Map.entry("fullname", "fullname"), Map.entry("фио", "fullname"),
+            Map.entry("group", "group"), Map.entry("group_name", "group"), Map.entry("группа", "group"),
+            Map.entry("login", "login"), Map.entry("логин", "login"),
+            Map.entry("password", "password"), Map.entry("пароль", "password")
+    );
+
+    private final StudentRepository studentRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+
+    public StudentImportService(StudentRepository studentRepository,
+                                UserRepository userRepository,
+                                ApplicationEventPublisher events,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.import.chunk-size:500}") int chunkSize) {
+        this.studentRepository = studentRepository;
+        this.userRepository = userRepository;
+        this.events = events;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    // Счётчики одного импорта
+    private static final class Report {
+        int students;
+        int users;
+        long failed;
+        final List<RowError> errors = new ArrayList<>();
+
+        void error(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_ERRORS) errors.add(new RowError(line, message));
+        }
+
+        ImportResult result() {
+            return new ImportResult(students, users, List.copyOf(errors), failed);
+        }
+    }
+
+    public ImportResult importCsv(InputStream in) throws IOException {
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        String header = reader.readLine();
+        if (header == null) throw new IllegalArgumentException("Файл пуст");
+        if (header.startsWith("\uFEFF")) header = header.substring(1);
+
+        char delimiter = count(header, ';') > count(header, ',') ? ';' : ',';
+        Map<String, Integer> idx = columns(parseLine(header, delimiter));
+
+        if (!idx.containsKey("fullname")) {
+            throw new IllegalArgumentException("В заголовке CSV нет колонки fullname (ФИО)");
+        }
+        if (!idx.containsKey("group")) {
+            throw new IllegalArgumentException("В заголовке CSV нет колонки group (группа)");
+        }
+
+        Report report = new Report();
+        Set<String> seenLogins = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+
+        long lineNo = 1;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) continue;
+
+            List<String> cells = parseLine(line, delimiter);
+
+            String fullname = cell(cells, idx, "fullname");
+            String group = cell(cells, idx, "group");
+            String login = cell(cells, idx, "login");
+            String password = cell(cells, idx, "password");
+
+            if (fullname == null) {
+                report.error(lineNo, "Не указано ФИО");
+                continue;
+            }
+            if (group == null) {
+                report.error(lineNo, "Не указана группа");
+                continue;
+            }
+            if (login != null && password == null) {
+                report.error(lineNo, "Для логина '" + login + "' не указан пароль");
+                continue;
+            }
+            if (login != null && !seenLogins.add(login)) {
+                report.error(lineNo, "Логин '" + login + "' повторяется в файле");
+                continue;
+            }
+
+            chunk.add(new Row(lineNo, fullname, group, login, password));
+
+            if (chunk.size() >= chunkSize) {
+                flush(chunk, report);
+                chunk.clear();
+                seenLogins.clear(); // дальше повтор найдёт findExistingLogins
+            }
+        }
+
+        if (!chunk.isEmpty()) flush(chunk, report);
+
+        return report.result();
+    }
+
+    // ------------------------------------------------------
+    // Пачка строк -> одна транзакция
+    // ------------------------------------------------------
+    private void flush(List<Row> chunk, Report report) {
+        try {
+            apply(tx.execute(status -> insertChunk(chunk)), report);
+
+        } catch (DataAccessException e) {
+            // Пачка откатилась целиком — повторяем построчно, чтобы найти виноватую строку
+            for (Row row : chunk) {
+                try {
+                    apply(tx.execute(status -> insertChunk(List.of(row))), report);
+                } catch (DataAccessException rowError) {
+                    report.error(row.line(), "Ошибка записи: " + rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private void apply(ChunkOutcome outcome, Report report) {
+        report.students += outcome.students();
+        report.users += outcome.users();
+        for (RowError e : outcome.rejected()) report.error(e.line(), e.message());
+    }
+
+    private ChunkOutcome insertChunk(List<Row> rows) {
+
+        List<String> logins = new ArrayList<>();
+        for (Row r : rows) if (r.login() != null) logins.add(r.login());
+
+        Set<String> taken = userRepository.findExistingLogins(logins);
+
+        List<Row> accepted = new ArrayList<>(rows.size());
+        List<Student> students = new ArrayList<>(rows.size());
+        List<RowError> rejected = new ArrayList<>();
+
+        for (Row r : rows) {
+            if (r.login() != null && taken.contains(r.login())) {
+                rejected.add(new RowError(r.line(), "Пользователь с логином '" + r.login() + "' уже существует"));
+                continue;
+            }
+            accepted.add(r);
+            students.add(new Student(null, r.fullname(), r.group()));
+        }
+
+        studentRepository.insertAll(students);
+        events.publishEvent(StudentsChangedEvent.added(students)); // слушатели получат после коммита
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            Row r = accepted.get(i);
+            if (r.login() == null) continue;
+            users.add(new User(null, r.login(), r.password(), "STUDENT", students.get(i).getId()));
+        }
+
+        userRepository.insertAll(users);
+
+        return new ChunkOutcome(students.size(), users.size(), rejected);
+    }
+
+    // ------------------------------------------------------
+    // CSV
+    // ------------------------------------------------------
+
+    private Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> idx = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = COLUMNS.get(header.get(i).trim().toLowerCase(Locale.ROOT));
+            if (name != null) idx.putIfAbsent(name, i);
+        }
+        return idx;
+    }
+
+    private String cell(List<String> cells, Map<String, Integer> idx, String column) {
+        Integer i = idx.get(column);
+        if (i == null || i >= cells.size()) return null;
+
+        String v = cells.get(i).replace('\u00A0', ' ').trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    // Одна строка CSV: поля в кавычках, "" внутри кавычек — кавычка
+    static List<String> parseLine(String line, char delimiter) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        cur.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    cur.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                out.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        out.add(cur.toString());
+        return out;
+    }
+
+    private static int count(String s, char c) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) if (s.charAt(i) == c) n++;
+        return n;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.studentsystemweb.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.studentsystemweb.event.StudentsChangedEvent;
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.repository.StudentRepository;
+
+/**
+ * Поиск студентов по ФИО и группе в памяти.
+ *
+ * Текст приводится к нижнему регистру (в т.ч. кириллица, ё -> е) и режется
+ * на слова. Запрос — несколько слов, каждое ищется:
+ *  - короче 3 символов — как префикс слова (TreeMap слов);
+ *  - от 3 символов — как подстрока: кандидаты по пересечению триграмм,
+ *    затем проверка вхождения.
+ * Индекс строится при старте и обновляется по StudentsChangedEvent.
+ */
+@Service
+public class StudentSearchIndex {
+
+    public record Hit(int id, String fullname, String groupName) {}
+
+    // text — свёрнутые ФИО и группа, name — свёрнутое ФИО
+    private record Doc(Hit hit, String text, String name) {}
+
+    private final StudentRepository studentRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final NavigableMap<String, Postings> words = new TreeMap<>();
+    private final Map<String, Postings> grams = new HashMap<>();
+
+    private volatile boolean built;
+
+    public StudentSearchIndex(StudentRepository studentRepository) {
+        this.studentRepository = studentRepository;
+    }
+
+    // ================= BUILD / UPDATE =================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            words.clear();
+            grams.clear();
+            for (Student s : studentRepository.findAll()) add(s);
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsChanged(StudentsChangedEvent event) {
+        if (!built) return; // построится целиком уже с этими данными
+
+        lock.writeLock().lock();
+        try {
+            for (Integer id : event.deletedIds()) remove(id);
+            for (Student s : event.added()) {
+                remove(s.getId());
+                add(s);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Student s) {
+        String name = fold(s.getFullname());
+        String text = name + " " + fold(s.getGroupName());
+        docs.put(s.getId(), new Doc(new Hit(s.getId(), s.getFullname(), s.getGroupName()), text, name));
+
+        for (String w : tokens(text)) {
+            words.computeIfAbsent(w, k -> new Postings()).add(s.getId());
+            for (String g : trigrams(w)) grams.computeIfAbsent(g, k -> new Postings()).add(s.getId());
+        }
+    }
+
+    private void remove(int id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) return;
+
+        for (String w : tokens(doc.text())) {
+            removePosting(words, w, id);
+            for (String g : trigrams(w)) removePosting(grams, g, id);
+        }
+    }
+
+    private static void removePosting(Map<String, Postings> map, String key, int id) {
+        Postings p = map.get(key);
+        if (p != null && p.remove(id) && p.size == 0) map.remove(key);
+    }
+
+    // ================= SEARCH =================
+
+    public List<Hit> search(String query, int limit) {
+        List<String> terms = tokens(fold(query));
+        if (terms.isEmpty() || limit <= 0) return List.of();
+
+        if (!built) build();
+
+        lock.readLock().lock();
+        try {
+            int[] result = null;
+
+            for (String term : terms) {
+                int[] ids = term.length() < 3 ? byPrefix(term) : bySubstring(term);
+                result = result == null ? ids : intersect(result, ids);
+                if (result.length == 0) return List.of();
+            }
+
+            // Порядок: весь запрос встречается как фраза ("гр-2"), затем ФИО начинается
+            // с первого слова, затем остальные; внутри — по id. Проход останавливается,
+            // как только лучшая корзина набрала limit
+            String phrase = fold(query).trim();
+            String first = terms.get(0);
+            List<List<Hit>> tiers = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+
+            for (int id : result) {
+                Doc d = docs.get(id);
+                if (d == null) continue;
+
+                int tier = d.text().contains(phrase) ? 0 : d.name().startsWith(first) ? 1 : 2;
+                List<Hit> bucket = tiers.get(tier);
+                if (bucket.size() < limit) bucket.add(d.hit());
+                if (tiers.get(0).size() == limit) break;
+            }
+
+            List<Hit> hits = new ArrayList<>(limit);
+            for (List<Hit> bucket : tiers) {
+                for (Hit h : bucket) {
+                    if (hits.size() == limit) return hits;
+                    hits.add(h);
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] byPrefix(String prefix) {
+        BitSet ids = new BitSet();
+        for (Postings p : words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (int i = 0; i < p.size; i++) ids.set(p.ids[i]);
+        }
+        return ids.stream().toArray();
+    }
+
+    private int[] bySubstring(String term) {
+        List<String> gs = trigrams(term);
+
+        // Начинаем с самой короткой цепочки — пересечение сразу маленькое
+        Postings[] lists = new Postings[gs.size()];
+        for (int i = 0; i < gs.size(); i++) {
+            Postings p = grams.get(gs.get(i));
+            if (p == null) return new int[0];
+            lists[i] = p;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+        int[] ids = lists[0].toArray();
+        for (int i = 1; i < lists.length && ids.length > 0; i++) ids = intersect(ids, lists[i].toArray());
+
+        // Триграммы могут совпасть в разных словах — проверяем вхождение
+        int n = 0;
+        for (int id : ids) {
+            Doc d = docs.get(id);
+            if (d != null && d.text().contains(term)) ids[n++] = id;
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    // ================= TEXT =================
+
+    static String fold(String s) {
+        if (s == null) return "";
+        return s.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private static List<String> tokens(String folded) {
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean letter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (letter && start < 0) start = i;
+            if (!letter && start >= 0) {
+                out.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    private static List<String> trigrams(String word) {
+        if (word.length() < 3) return List.of();
+        List<String> out = new ArrayList<>(word.length() - 2);
+        for (int i = 0; i + 3 <= word.length(); i++) out.add(word.substring(i, i + 3));
+        return out;
+    }
+
+    // ================= POSTINGS =================
+
+    // Отсортированный массив id без повторов; id обычно растут — вставка в конец
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            int pos = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0 && pos < size) return; // уже есть
+            if (pos < 0) pos = -pos - 1;
+
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return false;
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
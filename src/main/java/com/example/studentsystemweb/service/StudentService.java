@@ -1,7 +1,6 @@
 package com.example.studentsystemweb.service;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +9,7 @@ import org.springframework.stereotype.Service;
 
 import com.example.studentsystemweb.model.Attendance;
 import com.example.studentsystemweb.model.Grade;
+import com.example.studentsystemweb.model.JournalSheet;
 import com.example.studentsystemweb.model.ProgressRecord;
 import com.example.studentsystemweb.model.Student;
 import com.example.studentsystemweb.repository.AttendanceRepository;
@@ -24,15 +24,21 @@ public class StudentService {
     private final GradeRepository gradeRepository;
     private final ProgressRepository progressRepository;
     private final AttendanceRepository attendanceRepository;
+    private final GradingService gradingService;
+    private final StudentFinalsCache finalsCache;
 
     public StudentService(StudentRepository studentRepository,
                           GradeRepository gradeRepository,
                           ProgressRepository progressRepository,
-                          AttendanceRepository attendanceRepository) {
+                          AttendanceRepository attendanceRepository,
+                          GradingService gradingService,
+                          StudentFinalsCache finalsCache) {
         this.studentRepository = studentRepository;
         this.gradeRepository = gradeRepository;
         this.progressRepository = progressRepository;
         this.attendanceRepository = attendanceRepository;
+        this.gradingService = gradingService;
+        this.finalsCache = finalsCache;
     }
 
     // ---------------- BASIC ----------------
@@ -48,81 +54,18 @@ public class StudentService {
     // ---------------- FINAL GRADES ----------------
 
     public List<Grade> getGrades(int studentId) {
+        return getFinals(studentId).grades();
+    }
 
-        List<String> subjects = gradeRepository.findSubjectsForStudent(studentId);
-        if (subjects.isEmpty()) return Collections.emptyList();
-
-        List<Grade> finals = new ArrayList<>();
-
-        for (String subject : subjects) {
-
-            Map<String, Double> map = gradeRepository.getComponentMap(studentId, subject);
-
-            if (map == null) map = new LinkedHashMap<>();
-
-            double[] weekAvg = new double[15];
-            int[] has = new int[15];
-
-            for (int w = 1; w <= 15; w++) {
-
-                double sum = 0;
-                int cnt = 0;
-
-                for (String t : new String[]{"lecture", "sro", "lab"}) {
-
-                    String key = "week" + w + "_" + t;
-                    if (!map.containsKey(key)) continue;
-
-                    double v = map.get(key);
-
-                    if (v >= 0) {
-                        sum += v;
-                        cnt++;
-                    }
-                }
-
-                if (cnt > 0) {
-                    weekAvg[w - 1] = sum / cnt;
-                    has[w - 1] = 1;
-                }
-            }
-
-            double tk1 = averageRange(weekAvg, has, 0, 6);
-            double tk2 = averageRange(weekAvg, has, 7, 14);
-
-            double rk1 = safe(map.getOrDefault("rk1", 0.0));
-            double rk2 = safe(map.getOrDefault("rk2", 0.0));
-            double exam = safe(map.getOrDefault("exam", 0.0));
-
-            double r1 = tk1 * 0.6 + rk1 * 0.4;
-            double r2 = tk2 * 0.6 + rk2 * 0.4;
-
-            double dopusk = (r1 + r2) / 2;
-
-            double finalScore = dopusk * 0.6 + exam * 0.4;
-
-            Grade g = new Grade();
-            g.setStudentId(studentId);
-            g.setSubject(subject);
-            g.setWorkType("FINAL");
-            g.setGrade(round2(finalScore));
-
-            finals.add(g);
-        }
-
-        return finals;
+    public StudentFinals getFinals(int studentId) {
+        return finalsCache.get(studentId,
+                () -> gradingService.loadStudentFinals(studentId));
     }
 
     // ---------------- AVERAGE ----------------
 
     public Double getAverage(int studentId) {
-        List<Grade> finals = getGrades(studentId);
-
-        if (finals.isEmpty()) return 0.0;
-
-        return round2(
-                finals.stream().mapToDouble(Grade::getGrade).sum() / finals.size()
-        );
+        return getFinals(studentId).average();
     }
 
     // ---------------- PROGRESS ----------------
@@ -146,15 +89,7 @@ public class StudentService {
     // ---------------- SUBJECT AVERAGES ----------------
 
     public Map<String, Double> getSubjectAverages(int studentId) {
-
-        List<Grade> finals = getGrades(studentId);
-        Map<String, Double> map = new LinkedHashMap<>();
-
-        for (Grade g : finals) {
-            map.put(g.getSubject(), g.getGrade());
-        }
-
-        return map;
+        return new LinkedHashMap<>(getFinals(studentId).subjectAverages());
     }
 
     public List<String> getSubjectLabels(int studentId) {
@@ -169,36 +104,34 @@ public class StudentService {
 
     public Map<String, Map<String, Object>> generateFullJournal(int studentId) {
 
-        List<String> subjects = gradeRepository.findSubjectsForStudent(studentId);
+        Map<String, JournalSheet> sheets = gradeRepository.findSheets(studentId);
         Map<String, Map<String, Object>> result = new LinkedHashMap<>();
 
-        for (String subject : subjects) {
-
-            Map<String, Double> db = gradeRepository.getComponentMap(studentId, subject);
-            if (db == null) db = new LinkedHashMap<>();
+        for (Map.Entry<String, JournalSheet> e : sheets.entrySet()) {
 
+            JournalSheet db = e.getValue();
             Map<String, Object> row = new LinkedHashMap<>();
 
-            for (String t : new String[]{"lecture", "sro", "lab"}) {
-                for (int i = 1; i <= 15; i++) {
-                    String key = "week" + i + "_" + t;
-                    row.put(key, db.getOrDefault(key, null));
+            for (int t = 0; t < JournalSheet.TYPES.length; t++) {
+                for (int w = 1; w <= JournalSheet.WEEKS; w++) {
+                    int i = JournalSheet.cell(w, t);
+                    row.put(JournalSheet.CELL_KEYS[i], db.hasValue(i) ? db.value(i) : null);
                 }
             }
 
-            row.put("tk1", db.getOrDefault("tk1", null));
-            row.put("rk1", db.getOrDefault("rk1", null));
-            row.put("r1", db.getOrDefault("r1", null));
+            row.put("tk1", total(db, JournalSheet.TK1));
+            row.put("rk1", db.hasExam(JournalSheet.RK1) ? db.exam(JournalSheet.RK1) : null);
+            row.put("r1", total(db, JournalSheet.R1));
 
-            row.put("tk2", db.getOrDefault("tk2", null));
-            row.put("rk2", db.getOrDefault("rk2", null));
-            row.put("r2", db.getOrDefault("r2", null));
+            row.put("tk2", total(db, JournalSheet.TK2));
+            row.put("rk2", db.hasExam(JournalSheet.RK2) ? db.exam(JournalSheet.RK2) : null);
+            row.put("r2", total(db, JournalSheet.R2));
 
-            row.put("dopusk", db.getOrDefault("dopusk", null));
-            row.put("exam", db.getOrDefault("exam", null));
-            row.put("FINAL", db.getOrDefault("FINAL", null));
+            row.put("dopusk", total(db, JournalSheet.DOPUSK));
+            row.put("exam", db.hasExam(JournalSheet.EXAM) ? db.exam(JournalSheet.EXAM) : null);
+            row.put("FINAL", total(db, JournalSheet.FINAL));
 
-            result.put(subject, row);
+            result.put(e.getKey(), row);
         }
 
         return result;
@@ -210,25 +143,7 @@ public class StudentService {
 
     // ---------------- UTIL ----------------
 
-    private double safe(double v) {
-        return v < 0 ? 0 : v;
-    }
-
-    private double round2(double v) {
-        return Math.round(v * 100.0) / 100.0;
-    }
-
-    private double averageRange(double[] arr, int[] has, int from, int to) {
-        double sum = 0;
-        int cnt = 0;
-
-        for (int i = from; i <= to; i++) {
-            if (has[i] == 1) {
-                sum += arr[i];
-                cnt++;
-            }
-        }
-
-        return cnt == 0 ? 0.0 : sum / cnt;
+    private Double total(JournalSheet sheet, int i) {
+        return sheet.hasTotal(i) ? sheet.total(i) : null;
     }
 }
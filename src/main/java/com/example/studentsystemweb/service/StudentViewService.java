@@ -0,0 +1,96 @@
+package com.example.studentsystemweb.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.studentsystemweb.model.ProgressRecord;
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.repository.AttendanceRepository;
+import com.example.studentsystemweb.repository.ProgressRepository;
+import com.example.studentsystemweb.repository.StudentRepository;
+
+/**
+ * Сборка StudentDashboardView: студент, итоги, счётчики посещаемости и
+ * прогресс — короткие чтения по ключу студента в одной транзакции чтения,
+ * то есть из одного снимка базы. Итоги берутся из StudentFinalsCache;
+ * при промахе читаются из finals и кладутся в кеш.
+ */
+@Service
+public class StudentViewService {
+
+    private final StudentRepository studentRepository;
+    private final ProgressRepository progressRepository;
+    private final AttendanceRepository attendanceRepository;
+    private final GradingService gradingService;
+    private final StudentFinalsCache finalsCache;
+
+    public StudentViewService(StudentRepository studentRepository,
+                              ProgressRepository progressRepository,
+                              AttendanceRepository attendanceRepository,
+                              GradingService gradingService,
+                              StudentFinalsCache finalsCache) {
+        this.studentRepository = studentRepository;
+        this.progressRepository = progressRepository;
+        this.attendanceRepository = attendanceRepository;
+        this.gradingService = gradingService;
+        this.finalsCache = finalsCache;
+    }
+
+    // Дашборд и отчёт
+    @Transactional(readOnly = true)
+    public StudentDashboardView load(int studentId) {
+        return assemble(studentId, false, null);
+    }
+
+    // Журнал: дополнительно таблица выбранного предмета (по умолчанию — первого)
+    @Transactional(readOnly = true)
+    public StudentDashboardView loadWithJournal(int studentId, String subject) {
+        return assemble(studentId, true, subject);
+    }
+
+    private StudentDashboardView assemble(int studentId, boolean withJournal, String subject) {
+
+        Student student = studentRepository.findById(studentId);
+        StudentFinals finals = loadFinals(studentId);
+        List<ProgressRecord> progress = progressRepository.findByStudent(studentId);
+        // {present, absent} из attendance_counters — сам список посещений страницам не нужен
+        int[] counters = attendanceRepository.counters(studentId);
+
+        // Журнал: лист выбранного предмета (по умолчанию — первого)
+        Map<String, Double> table = null;
+        if (withJournal && !finals.subjectAverages().isEmpty()) {
+            if (subject == null || !finals.subjectAverages().containsKey(subject)) {
+                subject = finals.subjectAverages().keySet().iterator().next();
+            }
+            table = gradingService.getJournalTable(studentId, subject);
+        }
+
+        return new StudentDashboardView(
+                student,
+                finals.grades(),
+                finals.subjectAverages(),
+                finals.average(),
+                progress,
+                counters[0],
+                counters[1],
+                finals.subjects(),
+                table == null ? null : subject,
+                table
+        );
+    }
+
+    private StudentFinals loadFinals(int studentId) {
+
+        long generation = finalsCache.generation();
+
+        StudentFinals finals = finalsCache.peek(studentId);
+        if (finals == null) {
+            finals = gradingService.loadStudentFinals(studentId);
+            finalsCache.put(studentId, finals, generation);
+        }
+        return finals;
+    }
+}
@@ -1,54 +1,45 @@
 package com.example.studentsystemweb.service;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
-import com.example.studentsystemweb.model.Grade;
 import com.example.studentsystemweb.model.Student;
-import com.example.studentsystemweb.repository.GradeRepository;
+import com.example.studentsystemweb.model.StudentPage;
+import com.example.studentsystemweb.model.SubjectFinal;
+import com.example.studentsystemweb.repository.FinalsRepository;
 import com.example.studentsystemweb.repository.StudentRepository;
 
 @Service
 public class TeacherService {
 
     private final StudentRepository studentRepository;
-    private final GradeRepository gradeRepository;
+    private final FinalsRepository finalsRepository;
+    private final GroupRollups groupRollups;
+    private final AnalyticsRollups analyticsRollups;
+    private final DataVersion dataVersion;
 
-    // cache: studentId -> subject -> (workType -> grade)
-    private Map<Integer, Map<String, Map<String, Double>>> cache = null;
+    // Последний снимок аналитики, его серии графиков и версия данных, на которой он посчитан
+    private record VersionedSnapshot(long version, AnalyticsSnapshot snapshot, AnalyticsSeries series) {}
+
+    private volatile VersionedSnapshot analytics;
+    private final Object analyticsLock = new Object();
 
     public TeacherService(StudentRepository studentRepository,
-                          GradeRepository gradeRepository) {
+                          FinalsRepository finalsRepository,
+                          GroupRollups groupRollups,
+                          AnalyticsRollups analyticsRollups,
+                          DataVersion dataVersion) {
         this.studentRepository = studentRepository;
-        this.gradeRepository = gradeRepository;
-    }
-
-    // Build cache lazily
-    private void buildCacheIfNeeded() {
-        if (cache != null) return;
-
-        cache = new HashMap<>();
-        List<Grade> all = gradeRepository.findAll();
-
-        for (Grade g : all) {
-            // defensive nulls (subject/workType may be null in DB)
-            String subject = g.getSubject() == null ? "" : g.getSubject();
-            String workType = g.getWorkType() == null ? "" : g.getWorkType();
-
-            cache
-                .computeIfAbsent(g.getStudentId(), x -> new HashMap<>())
-                .computeIfAbsent(subject, x -> new HashMap<>())
-                .put(workType, g.getGrade());
-        }
+        this.finalsRepository = finalsRepository;
+        this.groupRollups = groupRollups;
+        this.analyticsRollups = analyticsRollups;
+        this.dataVersion = dataVersion;
     }
 
     // ================= STUDENTS =================
@@ -87,306 +78,164 @@ public class TeacherService {
         }
     }
 
+    public StudentPage getStudentsPage(String group, Integer after, Integer before, int size) {
+        return studentRepository.findPage(group, after, before, size);
+    }
+
+    public int countStudents(String group) {
+        return studentRepository.count(group);
+    }
+
     // ================= SUBJECTS =================
 
     public List<String> getSubjectsForStudent(int studentId) {
-        buildCacheIfNeeded();
-        Map<String, Map<String, Double>> m = cache.get(studentId);
-        if (m == null) return List.of();
-        return m.keySet().stream().sorted().toList();
+        return finalsRepository.findByStudent(studentId).stream().map(SubjectFinal::subject).toList();
     }
 
     // ================= FINAL GRADES =================
 
     public Map<String, Double> getFinalGradesForStudent(int studentId) {
-        buildCacheIfNeeded();
-        Map<String, Map<String, Double>> m = cache.get(studentId);
-        if (m == null) return Map.of();
-
         Map<String, Double> finals = new LinkedHashMap<>();
 
-        for (String subject : m.keySet()) {
-            Double fin = m.get(subject).get("FINAL");
-            finals.put(subject, fin == null ? null : round2(fin));
+        for (SubjectFinal f : finalsRepository.findByStudent(studentId)) {
+            finals.put(f.subject(), f.finalScore() == null ? null : round2(f.finalScore()));
         }
         return finals;
     }
 
     public Double getFinalAverageForStudent(int studentId) {
-        buildCacheIfNeeded();
-        Map<String, Map<String, Double>> m = cache.get(studentId);
-        if (m == null) return null;
+        return finalAverage(finalsRepository.findByStudent(studentId));
+    }
 
-        double sum = 0;
-        int count = 0;
+    // Средний итоговый группы (как groupValues в аналитике) — из агрегатов групп, без запроса
+    public Double getGroupFinalAverage(String group) {
+        GroupRollups.GroupStats stats = groupRollups.group(group);
+        return stats == null ? null : stats.average();
+    }
 
-        for (String subject : m.keySet()) {
-            Double fin = m.get(subject).get("FINAL");
-            // treat null or non-positive as "no final" -> student has no average
-            if (fin == null || fin <= 0) return null;
-            sum += fin;
-            count++;
+    // Средние только для студентов страницы (как finalAverages в аналитике; без итогов — нет ключа)
+    public Map<Integer, Double> getFinalAverages(Collection<Integer> studentIds) {
+        Map<Integer, Double> averages = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<SubjectFinal>> e : byStudent(finalsRepository.findByStudents(studentIds)).entrySet()) {
+            Double avg = finalAverage(e.getValue());
+            if (avg != null) averages.put(e.getKey(), avg);
         }
-
-        return count == 0 ? null : round2(sum / count);
+        return averages;
     }
 
     public Map<Integer, Double> getFinalAveragesForAllStudents() {
-        buildCacheIfNeeded();
-        Map<Integer, Double> out = new LinkedHashMap<>();
+        return getAnalytics().finalAverages();
+    }
+
+    // ================= ANALYTICS SNAPSHOT =================
+    // Снимок собирается из AnalyticsRollups (состояние патчится по событиям,
+    // без перечитывания finals) и только при смене DataVersion: геттеры ниже
+    // и параллельные запросы одной версии делят одну сборку
+
+    public AnalyticsSnapshot getAnalytics() {
+        return analytics().snapshot();
+    }
+
+    // Только серии графиков (для JSON) — из того же снимка
+    public AnalyticsSeries getAnalyticsSeries() {
+        return analytics().series();
+    }
 
-        for (Student s : studentRepository.findAll()) {
-            out.put(s.getId(), getFinalAverageForStudent(s.getId()));
+    private VersionedSnapshot analytics() {
+        // Версия — до чтения данных: если они изменятся во время расчёта,
+        // следующий вызов увидит новую версию и посчитает заново
+        long version = dataVersion.current();
+
+        VersionedSnapshot cached = analytics;
+        if (cached != null && cached.version() == version) return cached;
+
+        synchronized (analyticsLock) {
+            cached = analytics;
+            if (cached != null && cached.version() >= version) return cached;
+
+            AnalyticsSnapshot snapshot = analyticsRollups.snapshot();
+            analytics = new VersionedSnapshot(version, snapshot, AnalyticsSeries.of(snapshot));
+            return analytics;
         }
-        return out;
     }
 
     // ================= ANALYTICS =================
 
     public boolean hasFinals() {
-        for (Student s : studentRepository.findAll()) {
-            if (getFinalAverageForStudent(s.getId()) != null) return true;
-        }
-        return false;
+        return getAnalytics().hasFinals();
     }
 
     public Double getOverallAverage() {
-        double sum = 0;
-        int count = 0;
-
-        for (Student s : studentRepository.findAll()) {
-            Double avg = getFinalAverageForStudent(s.getId());
-            if (avg != null) {
-                sum += avg;
-                count++;
-            }
-        }
-        return count == 0 ? null : round2(sum / count);
+        return getAnalytics().overallAverage();
     }
 
     public int countStudentsWithFinals() {
-        int c = 0;
-        for (Student s : studentRepository.findAll()) {
-            if (getFinalAverageForStudent(s.getId()) != null) c++;
-        }
-        return c;
+        return getAnalytics().studentsWithFinals();
     }
 
     public int getSubjectsCount() {
-        buildCacheIfNeeded();
-        Set<String> set = new HashSet<>();
-
-        for (Map<String, Map<String, Double>> st : cache.values()) {
-            set.addAll(st.keySet());
-        }
-        return set.size();
+        return getAnalytics().subjectsCount();
     }
 
     public List<Integer> getPieData() {
-        int a = 0, b = 0, c = 0, d = 0;
-
-        for (Student s : studentRepository.findAll()) {
-            Double avg = getFinalAverageForStudent(s.getId());
-            if (avg == null) continue;
-
-            if (avg <= 50) a++;
-            else if (avg <= 70) b++;
-            else if (avg <= 85) c++;
-            else d++;
-        }
-
-        return List.of(a, b, c, d);
+        return getAnalytics().pieData();
     }
 
     public List<String> getPieLabels() {
-        return List.of("0–50", "50–70", "70–85", "85–100");
+        return AnalyticsRollups.PIE_LABELS;
     }
 
     public List<String> getSubjectsLabels() {
-        buildCacheIfNeeded();
-        return cache.values().stream()
-                .flatMap(m -> m.keySet().stream())
-                .distinct()
-                .sorted()
-                .toList();
+        return getAnalytics().subjectsLabels();
     }
 
     public List<Double> getSubjectsValues() {
-        buildCacheIfNeeded();
-        List<String> subjects = getSubjectsLabels();
-        List<Double> out = new ArrayList<>();
-
-        for (String sub : subjects) {
-            double sum = 0;
-            int count = 0;
-
-            for (Map<String, Map<String, Double>> st : cache.values()) {
-                Double fin = st.getOrDefault(sub, Map.of()).get("FINAL");
-                if (fin != null && fin > 0) {
-                    sum += fin;
-                    count++;
-                }
-            }
-            out.add(count == 0 ? null : round2(sum / count));
-        }
-        return out;
+        return getAnalytics().subjectsValues();
     }
 
     // ================= TOP & LOW STUDENTS =================
 
     public List<Map<String, Object>> getTopStudents() {
-        List<Map<String, Object>> list = new ArrayList<>();
-
-        for (Student s : getStudents()) {
-            Double avg = getFinalAverageForStudent(s.getId());
-            if (avg == null) continue;
-
-            list.add(Map.of(
-                    "fullname", s.getFullname(),
-                    "groupName", s.getGroupName(),
-                    "finalScore", avg
-            ));
-        }
-
-        return list.stream()
-                .sorted((a, b) -> Double.compare(
-                        (double) b.get("finalScore"),
-                        (double) a.get("finalScore")))
-                .limit(5)
-                .toList();
+        return getAnalytics().topStudents();
     }
 
     public List<Map<String, Object>> getLowStudentsList() {
-        List<Map<String, Object>> list = new ArrayList<>();
-
-        for (Student s : getStudents()) {
-            Double avg = getFinalAverageForStudent(s.getId());
-            if (avg == null) continue;
-
-            list.add(Map.of(
-                    "fullname", s.getFullname(),
-                    "groupName", s.getGroupName(),
-                    "finalScore", avg
-            ));
-        }
-
-        return list.stream()
-                .sorted(Comparator.comparingDouble(a -> (double) a.get("finalScore")))
-                .limit(5)
-                .toList();
+        return getAnalytics().lowStudents();
     }
 
     // ================= ABSENT STUDENTS =================
-    // Count only "Н" marks which are represented as -1
+    // По счётчикам посещаемости (attendance_counters)
     public List<Map<String, Object>> getAbsentLeaders() {
-        buildCacheIfNeeded();
-
-        List<Map<String, Object>> out = new ArrayList<>();
-
-        for (Student s : getStudents()) {
-            int abs = 0;
-
-            Map<String, Map<String, Double>> st = cache.get(s.getId());
-            if (st == null) continue;
-
-            for (Map<String, Double> comp : st.values()) {
-                for (Double dv : comp.values()) {
-                    if (dv == null) continue;
-                    if (Double.compare(dv, -1.0) == 0) abs++;
-                }
-            }
-
-            out.add(Map.of(
-                    "fullname", s.getFullname(),
-                    "groupName", s.getGroupName(),
-                    "abs", abs
-            ));
-        }
-
-        return out.stream()
-                .sorted((a, b) -> Integer.compare(
-                        (int) b.get("abs"),
-                        (int) a.get("abs")))
-                .limit(5)
-                .toList();
+        return getAnalytics().absentLeaders();
     }
 
     // ================= GROUP-LEVEL ANALYTICS (NEW) =================
     // Labels (group names) in consistent order
     public List<String> getGroupLabels() {
-        return getAllGroups();
+        return groupRollups.groups().stream().map(GroupRollups.GroupStats::group).toList();
     }
 
     // Average FINAL per group (null when no finals in group)
     public List<Double> getGroupValues() {
-        List<String> groups = getGroupLabels();
-        List<Double> out = new ArrayList<>();
-
-        for (String g : groups) {
-            List<Student> students = getStudentsByGroup(g);
-            double sum = 0;
-            int count = 0;
-            for (Student s : students) {
-                Double avg = getFinalAverageForStudent(s.getId());
-                if (avg != null) {
-                    sum += avg;
-                    count++;
-                }
-            }
-            out.add(count == 0 ? null : round2(sum / count));
-        }
-        return out;
+        return groupRollups.groups().stream()
+                .map(g -> g.group() == null ? null : g.average())
+                .toList();
     }
 
     // Best group (label) by average, returns null if none
     public String getBestGroupLabel() {
-        List<String> labels = getGroupLabels();
-        List<Double> vals = getGroupValues();
-        double best = Double.NEGATIVE_INFINITY;
-        String bestLabel = null;
-        for (int i = 0; i < labels.size(); i++) {
-            Double v = vals.get(i);
-            if (v != null && v > best) {
-                best = v;
-                bestLabel = labels.get(i);
-            }
-        }
-        return bestLabel;
+        return getAnalytics().bestGroupLabel();
     }
 
     public Double getBestGroupValue() {
-        String label = getBestGroupLabel();
-        if (label == null) return null;
-        List<String> labels = getGroupLabels();
-        List<Double> vals = getGroupValues();
-        for (int i = 0; i < labels.size(); i++) {
-            if (label.equals(labels.get(i))) return vals.get(i);
-        }
-        return null;
+        return getAnalytics().bestGroupValue();
     }
 
     // Absences by group (total N counts per group)
     public List<Integer> getAbsByGroupValues() {
-        buildCacheIfNeeded();
-        List<String> groups = getGroupLabels();
-        List<Integer> out = new ArrayList<>();
-
-        for (String g : groups) {
-            int total = 0;
-            List<Student> students = getStudentsByGroup(g);
-            for (Student s : students) {
-                Map<String, Map<String, Double>> st = cache.get(s.getId());
-                if (st == null) continue;
-                for (Map<String, Double> comp : st.values()) {
-                    for (Double dv : comp.values()) {
-                        if (dv == null) continue;
-                        if (Double.compare(dv, -1.0) == 0) total++;
-                    }
-                }
-            }
-            out.add(total);
-        }
-        return out;
+        return groupRollups.groups().stream()
+                .map(g -> g.group() == null ? 0 : g.absences())
+                .toList();
     }
 
     public List<String> getAbsByGroupLabels() {
@@ -396,29 +245,39 @@ public class TeacherService {
     // ================= HISTOGRAM / BUCKETS =================
     // Simple histogram of final averages (useful for distribution chart)
     public List<String> getHistogramLabels() {
-        return List.of("0–50", "50–60", "60–70", "70–80", "80–90", "90–100");
+        return AnalyticsRollups.HIST_LABELS;
     }
 
     public List<Integer> getHistogramValues() {
-        buildCacheIfNeeded();
-        int a = 0, b = 0, c = 0, d = 0, e = 0, f = 0;
-
-        for (Student s : studentRepository.findAll()) {
-            Double avg = getFinalAverageForStudent(s.getId());
-            if (avg == null) continue;
-
-            if (avg < 50) a++;
-            else if (avg < 60) b++;
-            else if (avg < 70) c++;
-            else if (avg < 80) d++;
-            else if (avg < 90) e++;
-            else f++;
+        return getAnalytics().histValues();
+    }
+
+    // ================= UTIL =================
+
+    // строки finals (упорядочены по студенту) -> studentId -> листы студента
+    private static Map<Integer, List<SubjectFinal>> byStudent(List<SubjectFinal> rows) {
+        Map<Integer, List<SubjectFinal>> m = new LinkedHashMap<>();
+        for (SubjectFinal f : rows) m.computeIfAbsent(f.studentId(), k -> new ArrayList<>()).add(f);
+        return m;
+    }
+
+    // treat null or non-positive FINAL as "no final" -> student has no average
+    private Double finalAverage(List<SubjectFinal> st) {
+        if (st == null) return null;
+
+        double sum = 0;
+        int count = 0;
+
+        for (SubjectFinal f : st) {
+            Double fin = f.finalScore();
+            if (fin == null || fin <= 0) return null;
+            sum += fin;
+            count++;
         }
 
-        return List.of(a, b, c, d, e, f);
+        return count == 0 ? null : round2(sum / count);
     }
 
-    // ================= UTIL =================
     private double round2(double v) {
         return Math.round(v * 100.0) / 100.0;
     }
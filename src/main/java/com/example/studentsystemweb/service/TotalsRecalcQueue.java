@@ -0,0 +1,288 @@
+package com.example.studentsystemweb.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.studentsystemweb.model.SheetKey;
+import com.example.studentsystemweb.model.SubjectFinal;
+import com.example.studentsystemweb.repository.FinalsRepository;
+
+/**
+ * Фоновый пересчёт итогов журнала (tk1, tk2, r1, r2, dopusk, FINAL) для
+ * массовых случаев: листы без FINAL после миграции (ставятся при старте)
+ * и пары, поставленные через enqueue. Сохранение журнала пересчитывает
+ * свой лист само, в транзакции сохранения, — очередь для него не нужна.
+ *
+ * Повторная постановка той же пары, пока она ждёт, схлопывается в одну
+ * задачу. Воркеры выбирают задачи пачками; пачка пересчитывается в одной
+ * пишущей транзакции — листы читаются одним запросом и считаются одним
+ * вызовом FinalScoreCalculator.scoreAll.
+ *
+ * Если пачка откатилась, её пары пересчитываются по одной — чтобы одна
+ * сбойная пара не держала остальные. Сбойная пара возвращается в очередь
+ * с растущей задержкой (app.recalc.retry-backoff-ms, удваивается), после
+ * app.recalc.max-attempts неудач снимается с записью в лог.
+ */
+@Service
+public class TotalsRecalcQueue implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TotalsRecalcQueue.class);
+
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final GradingService gradingService;
+    private final FinalsRepository finalsRepository;
+    private final TransactionTemplate tx;
+
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    // key -> момент постановки в очередь (нс); наличие ключа = задача ждёт
+    private final Map<SheetKey, Long> pending = new ConcurrentHashMap<>();
+    private final BlockingQueue<SheetKey> queue = new LinkedBlockingQueue<>();
+
+    // key -> число неудачных попыток подряд; retrying — пары, ждущие повтора по таймеру
+    private final Map<SheetKey, Integer> attempts = new ConcurrentHashMap<>();
+    private final Set<SheetKey> retrying = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService pool;
+    private ScheduledExecutorService retryTimer;
+    private volatile boolean running;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong lastLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public TotalsRecalcQueue(GradingService gradingService,
+                             FinalsRepository finalsRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.recalc.workers:2}") int workers,
+                             @Value("${app.recalc.batch-size:64}") int batchSize,
+                             @Value("${app.recalc.max-attempts:5}") int maxAttempts,
+                             @Value("${app.recalc.retry-backoff-ms:500}") long backoffMillis) {
+        this.gradingService = gradingService;
+        this.finalsRepository = finalsRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.workers = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(1, backoffMillis);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        running = true;
+
+        AtomicInteger n = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "totals-recalc-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        for (int i = 0; i < workers; i++) pool.execute(this::workerLoop);
+
+        retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "totals-recalc-retry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        pool.shutdownNow();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+        retryTimer.shutdownNow();
+
+        // Что не успели (в т.ч. ждущие повтора) — досчитываем синхронно;
+        // не получившиеся пары пишутся в лог: очередь больше никто не читает
+        Set<SheetKey> rest = new LinkedHashSet<>();
+        queue.drainTo(rest);
+        rest.addAll(retrying);
+        retrying.clear();
+        if (!rest.isEmpty()) process(new ArrayList<>(rest));
+    }
+
+    // ================= ENQUEUE =================
+
+    public void enqueue(int studentId, String subject) {
+        if (subject == null) return;
+
+        SheetKey key = new SheetKey(studentId, subject);
+        enqueued.incrementAndGet();
+
+        if (pending.putIfAbsent(key, System.nanoTime()) == null) {
+            queue.offer(key);
+        } else {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    // Листы без FINAL (перенесены миграцией V5, ни разу не пересчитаны) — досчитываем формулой
+    @EventListener(ApplicationReadyEvent.class)
+    public void enqueueUnscored() {
+        List<SubjectFinal> unscored = finalsRepository.findUnscored();
+        for (SubjectFinal f : unscored) enqueue(f.studentId(), f.subject());
+
+        if (!unscored.isEmpty()) log.info("Пересчёт итогов: листов без FINAL поставлено в очередь — {}", unscored.size());
+    }
+
+    // ================= WORKER =================
+
+    private void workerLoop() {
+        List<SheetKey> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            try {
+                SheetKey first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                process(batch);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<SheetKey> batch) {
+        long now = System.nanoTime();
+
+        // Снимаем отметку до пересчёта: изменение, пришедшее во время пересчёта,
+        // снова поставит пару в очередь
+        for (SheetKey key : batch) {
+            Long since = pending.remove(key);
+            if (since != null) recordLag(now - since);
+        }
+
+        inFlight.addAndGet(batch.size());
+        try {
+            tx.executeWithoutResult(status -> gradingService.recalcTotals(batch));
+            for (SheetKey key : batch) attempts.remove(key);
+            processed.addAndGet(batch.size());
+            batches.incrementAndGet();
+
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failed(batch.get(0), e);
+                return;
+            }
+            log.warn("Пересчёт итогов: пачка из {} откатилась ({}), пересчитываем по одной",
+                    batch.size(), e.getMessage());
+
+            // Пачка откатилась целиком — повторяем построчно, чтобы найти виноватую пару
+            for (SheetKey key : batch) {
+                try {
+                    tx.executeWithoutResult(status -> gradingService.recalcTotals(List.of(key)));
+                    attempts.remove(key);
+                    processed.incrementAndGet();
+                } catch (RuntimeException keyError) {
+                    failed(key, keyError);
+                }
+            }
+            batches.incrementAndGet();
+
+        } finally {
+            inFlight.addAndGet(-batch.size());
+        }
+    }
+
+    private void failed(SheetKey key, RuntimeException e) {
+        failures.incrementAndGet();
+        int attempt = attempts.merge(key, 1, Integer::sum);
+
+        if (!running) {
+            attempts.remove(key);
+            dropped.incrementAndGet();
+            log.error("Пересчёт итогов {}: не выполнен при остановке, итоги не обновлены — {}", key, e.getMessage());
+            return;
+        }
+
+        if (attempt >= maxAttempts) {
+            attempts.remove(key);
+            dropped.incrementAndGet();
+            log.error("Пересчёт итогов {}: {} неудачных попыток, задача снята", key, attempt, e);
+            return;
+        }
+
+        long delay = Math.min(backoffMillis << (attempt - 1), MAX_BACKOFF_MILLIS);
+        log.warn("Пересчёт итогов {}: попытка {} из {} не удалась ({}), повтор через {} мс",
+                key, attempt, maxAttempts, e.getMessage(), delay);
+
+        retrying.add(key);
+        retryTimer.schedule(() -> {
+            if (retrying.remove(key)) {
+                retries.incrementAndGet();
+                enqueue(key.studentId(), key.subject());
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void recordLag(long lag) {
+        lastLagNanos.set(lag);
+        maxLagNanos.accumulateAndGet(lag, Math::max);
+    }
+
+    // ================= METRICS =================
+
+    public int getQueueDepth() { return pending.size(); }
+    public int getInFlight() { return inFlight.get(); }
+    public long getEnqueued() { return enqueued.get(); }
+    public long getCoalesced() { return coalesced.get(); }
+    public long getProcessed() { return processed.get(); }
+    public long getBatches() { return batches.get(); }
+    public long getFailures() { return failures.get(); }
+    public long getRetries() { return retries.get(); }
+    public long getDropped() { return dropped.get(); }
+    public int getRetrying() { return retrying.size(); }
+
+    public long getLastLagMillis() { return TimeUnit.NANOSECONDS.toMillis(lastLagNanos.get()); }
+    public long getMaxLagMillis() { return TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get()); }
+
+    // Сколько ждёт самая старая задача в очереди
+    public long getOldestPendingMillis() {
+        SheetKey head = queue.peek();
+        Long since = head == null ? null : pending.get(head);
+        return since == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+    }
+}
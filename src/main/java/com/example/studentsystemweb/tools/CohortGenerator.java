@@ -0,0 +1,306 @@
+package com.example.studentsystemweb.tools;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Random;
+
+import com.example.studentsystemweb.model.JournalSheet;
+import com.example.studentsystemweb.repository.JournalSheetCodec;
+import com.example.studentsystemweb.schema.SchemaMigrator;
+import com.example.studentsystemweb.service.FinalScoreCalculator;
+
+/**
+ * Генератор синтетической когорты для SQLite: students, users, grades (и finals), attendance, progress.
+ *
+ * Данные детерминированы (seed), журналы заполнены полностью (15 недель × lecture/sro/lab,
+ * флаги Н/Н.П по заданным долям, РК/экзамен), итоги считаются тем же FinalScoreCalculator,
+ * что и в приложении. Вставка — пакетами в одной транзакции.
+ *
+ * Из командной строки (после mvn package):
+ *   java -cp target/studentsystemweb-1.0.0.jar \
+ *        -Dloader.main=com.example.studentsystemweb.tools.CohortGenerator \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        --db=students.db --groups=200 --students-per-group=25 --subjects=6
+ *
+ * Из кода/тестов: new CohortGenerator(spec).generate(connection).
+ */
+public class CohortGenerator {
+
+    private static final int BATCH = 10_000;
+
+    public record Spec(int groups,
+                       int studentsPerGroup,
+                       int subjects,
+                       double absentRatio,
+                       double excusedRatio,
+                       int attendancePerStudent,
+                       int progressPerStudent,
+                       long seed) {
+
+        public static Spec defaults() {
+            return new Spec(40, 25, 6, 0.05, 0.02, 30, 5, 42L);
+        }
+
+        public int students() {
+            return groups * studentsPerGroup;
+        }
+    }
+
+    private final Spec spec;
+    private final FinalScoreCalculator calculator = new FinalScoreCalculator();
+
+    public CohortGenerator(Spec spec) {
+        this.spec = spec;
+    }
+
+    // ================= CLI =================
+
+    public static void main(String[] args) throws SQLException {
+        String db = "students.db";
+        Spec d = Spec.defaults();
+
+        int groups = d.groups(), perGroup = d.studentsPerGroup(), subjects = d.subjects();
+        int attendance = d.attendancePerStudent(), progress = d.progressPerStudent();
+        double absent = d.absentRatio(), excused = d.excusedRatio();
+        long seed = d.seed();
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Ожидается --ключ=значение: " + arg);
+            }
+            String key = arg.substring(2, eq);
+            String val = arg.substring(eq + 1);
+
+            switch (key) {
+                case "db" -> db = val;
+                case "groups" -> groups = Integer.parseInt(val);
+                case "students-per-group" -> perGroup = Integer.parseInt(val);
+                case "subjects" -> subjects = Integer.parseInt(val);
+                case "absent" -> absent = Double.parseDouble(val);
+                case "excused" -> excused = Double.parseDouble(val);
+                case "attendance" -> attendance = Integer.parseInt(val);
+                case "progress" -> progress = Integer.parseInt(val);
+                case "seed" -> seed = Long.parseLong(val);
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + key);
+            }
+        }
+
+        Spec spec = new Spec(groups, perGroup, subjects, absent, excused, attendance, progress, seed);
+
+        long start = System.nanoTime();
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + db)) {
+            new CohortGenerator(spec).generate(c);
+        }
+        System.out.printf("%s: %d студентов, %d предметов — %d мс%n",
+                db, spec.students(), spec.subjects(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ================= GENERATION =================
+
+    /**
+     * Приводит схему к последней версии и добавляет когорту. Студенты нумеруются
+     * после уже существующих, поэтому можно дописывать в непустую базу.
+     */
+    public void generate(Connection c) throws SQLException {
+        Random rnd = new Random(spec.seed());
+        boolean autoCommit = c.getAutoCommit();
+        c.setAutoCommit(false);
+
+        try {
+            SchemaMigrator.migrate(c);
+
+            int firstId = nextStudentId(c);
+
+            insertStudents(c, firstId);
+            insertUsers(c, firstId);
+            insertGrades(c, firstId, rnd);
+            insertAttendance(c, firstId, rnd);
+            insertProgress(c, firstId, rnd);
+
+            c.commit();
+        } catch (SQLException | RuntimeException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(autoCommit);
+        }
+    }
+
+    private int nextStudentId(Connection c) throws SQLException {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM students")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    public static String subjectName(int i) {
+        return "Предмет " + (i + 1);
+    }
+
+    private void insertStudents(Connection c, int firstId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO students(id, fullname, group_name) VALUES (?, ?, ?)")) {
+
+            for (int i = 0; i < spec.students(); i++) {
+                int id = firstId + i;
+                ps.setInt(1, id);
+                ps.setString(2, "Студент " + id);
+                ps.setString(3, "ГР-" + (i / spec.studentsPerGroup() + 1));
+                add(ps, i);
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void insertUsers(Connection c, int firstId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT OR IGNORE INTO users(login, password, role, linked_student_id) VALUES (?, ?, ?, ?)")) {
+
+            ps.setString(1, "admin");
+            ps.setString(2, "admin");
+            ps.setString(3, "ADMIN");
+            ps.setObject(4, null);
+            ps.addBatch();
+
+            ps.setString(1, "teacher");
+            ps.setString(2, "teacher");
+            ps.setString(3, "TEACHER");
+            ps.setObject(4, null);
+            ps.addBatch();
+
+            for (int i = 0; i < spec.students(); i++) {
+                int id = firstId + i;
+                ps.setString(1, "student" + id);
+                ps.setString(2, "student" + id);
+                ps.setString(3, "STUDENT");
+                ps.setInt(4, id);
+                add(ps, i);
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Строка finals пишется вместе с листом — как GradingService.recalcTotals
+    private void insertGrades(Connection c, int firstId, Random rnd) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO grades(student_id, subject, work_type, grade) VALUES (?, ?, ?, ?)");
+             PreparedStatement fin = c.prepareStatement(
+                "INSERT OR REPLACE INTO finals(student_id, subject, final, dopusk, absences, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)")) {
+
+            String now = LocalDateTime.now().withNano(0).toString();
+
+            int rows = 0;
+            int sheets = 0;
+            for (int i = 0; i < spec.students(); i++) {
+                int id = firstId + i;
+
+                for (int s = 0; s < spec.subjects(); s++) {
+                    JournalSheet sheet = randomSheet(rnd);
+                    calculator.score(sheet);
+
+                    int absences = 0;
+                    for (Map.Entry<String, Double> e : JournalSheetCodec.encode(sheet).entrySet()) {
+                        ps.setInt(1, id);
+                        ps.setString(2, subjectName(s));
+                        ps.setString(3, e.getKey());
+                        ps.setDouble(4, e.getValue());
+                        add(ps, rows++);
+                        if (e.getValue() == -1.0) absences++;
+                    }
+
+                    fin.setInt(1, id);
+                    fin.setString(2, subjectName(s));
+                    fin.setObject(3, sheet.hasTotal(JournalSheet.FINAL) ? sheet.total(JournalSheet.FINAL) : null);
+                    fin.setObject(4, sheet.hasTotal(JournalSheet.DOPUSK) ? sheet.total(JournalSheet.DOPUSK) : null);
+                    fin.setInt(5, absences);
+                    fin.setString(6, now);
+                    add(fin, sheets++);
+                }
+            }
+            ps.executeBatch();
+            fin.executeBatch();
+        }
+    }
+
+    private JournalSheet randomSheet(Random rnd) {
+        JournalSheet sheet = new JournalSheet();
+
+        for (int i = 0; i < JournalSheet.CELLS; i++) {
+            double r = rnd.nextDouble();
+            if (r < spec.absentRatio()) {
+                sheet.setFlag(i, (byte) 1);
+                sheet.setValue(i, -1.0);
+            } else if (r < spec.absentRatio() + spec.excusedRatio()) {
+                sheet.setFlag(i, (byte) 2);
+                sheet.setValue(i, -2.0);
+            } else {
+                sheet.setValue(i, 40 + rnd.nextInt(61));
+            }
+        }
+
+        for (int i = 0; i < JournalSheet.EXAM_KEYS.length; i++) {
+            if (rnd.nextDouble() < spec.absentRatio()) {
+                sheet.setExamFlag(i, (byte) 1);
+                sheet.setExam(i, -1.0);
+            } else {
+                sheet.setExam(i, 30 + rnd.nextInt(71));
+            }
+        }
+        return sheet;
+    }
+
+    private void insertAttendance(Connection c, int firstId, Random rnd) throws SQLException {
+        LocalDate start = LocalDate.of(2025, 9, 1);
+
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO attendance(student_id, date, subject, status) VALUES (?, ?, ?, ?)")) {
+
+            int rows = 0;
+            for (int i = 0; i < spec.students(); i++) {
+                for (int k = 0; k < spec.attendancePerStudent(); k++) {
+                    ps.setInt(1, firstId + i);
+                    ps.setString(2, start.plusDays(k).toString());
+                    ps.setString(3, subjectName(k % spec.subjects()));
+                    ps.setString(4, rnd.nextDouble() < spec.absentRatio() ? "absent" : "present");
+                    add(ps, rows++);
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void insertProgress(Connection c, int firstId, Random rnd) throws SQLException {
+        LocalDateTime start = LocalDateTime.of(2025, 9, 1, 9, 0);
+
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO progress(student_id, work_type, score, created_at) VALUES (?, ?, ?, ?)")) {
+
+            int rows = 0;
+            for (int i = 0; i < spec.students(); i++) {
+                for (int k = 0; k < spec.progressPerStudent(); k++) {
+                    ps.setInt(1, firstId + i);
+                    ps.setString(2, JournalSheet.TYPES[k % JournalSheet.TYPES.length]);
+                    ps.setDouble(3, 40 + rnd.nextInt(61));
+                    ps.setString(4, start.plusDays(7L * k).toString());
+                    add(ps, rows++);
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void add(PreparedStatement ps, int row) throws SQLException {
+        ps.addBatch();
+        if ((row + 1) % BATCH == 0) ps.executeBatch();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.studentsystemweb.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.studentsystemweb.model.JournalSheet;
+
+class JournalSheetCodecTest {
+
+    @Test
+    void decodesEverySlotKind() {
+        JournalSheet sheet = new JournalSheet();
+        int cell = JournalSheet.cell(2, 1); // week2_sro
+
+        JournalSheetCodec.decode(sheet, "week2_sro", 75);
+        JournalSheetCodec.decode(sheet, "week2_sro_flag", 1);
+        JournalSheetCodec.decode(sheet, "exam", 60);
+        JournalSheetCodec.decode(sheet, "exam_flag", 2);
+        JournalSheetCodec.decode(sheet, "FINAL", 81.5);
+
+        assertThat(sheet.value(cell)).isEqualTo(75);
+        assertThat(sheet.flag(cell)).isEqualTo((byte) 1);
+        assertThat(sheet.exam(JournalSheet.EXAM)).isEqualTo(60);
+        assertThat(sheet.examFlag(JournalSheet.EXAM)).isEqualTo((byte) 2);
+        assertThat(sheet.total(JournalSheet.FINAL)).isEqualTo(81.5);
+    }
+
+    @Test
+    void toleratesSpacesAndIgnoresUnknownKeys() {
+        JournalSheet sheet = new JournalSheet();
+
+        JournalSheetCodec.decode(sheet, " week1_lab ", 40);
+        JournalSheetCodec.decode(sheet, "week16_lab", 99);
+        JournalSheetCodec.decode(sheet, "unknown", 99);
+        JournalSheetCodec.decode(sheet, null, 99);
+
+        assertThat(JournalSheetCodec.encode(sheet))
+                .containsEntry("week1_lab", 40.0)
+                .doesNotContainKeys("week16_lab", "unknown");
+    }
+
+    @Test
+    void encodesFlagsAlwaysAndValuesOnlyWhenSet() {
+        JournalSheet sheet = new JournalSheet();
+        sheet.setValue(JournalSheet.cell(1, 0), 50);
+        sheet.setExam(JournalSheet.RK1, 70);
+
+        Map<String, Double> out = JournalSheetCodec.encode(sheet);
+
+        assertThat(out).hasSize(JournalSheet.CELLS + JournalSheet.EXAM_KEYS.length + 2);
+        assertThat(out).containsEntry("week1_lecture", 50.0).containsEntry("rk1", 70.0)
+                .containsEntry("week15_lab_flag", 0.0).containsEntry("exam_flag", 0.0)
+                .doesNotContainKeys("week1_sro", "rk2", "exam", "FINAL");
+    }
+
+    @Test
+    void roundTripsThroughEncode() {
+        JournalSheet sheet = new JournalSheet();
+        sheet.setValue(JournalSheet.cell(15, 2), 100);
+        sheet.setFlag(JournalSheet.cell(3, 0), (byte) 2);
+        sheet.setExam(JournalSheet.RK2, -1);
+        sheet.setExamFlag(JournalSheet.RK2, (byte) 1);
+        sheet.setTotal(JournalSheet.DOPUSK, 64.2);
+
+        Map<String, Double> encoded = JournalSheetCodec.encode(sheet);
+
+        JournalSheet copy = new JournalSheet();
+        encoded.forEach((k, v) -> JournalSheetCodec.decode(copy, k, v));
+
+        assertThat(JournalSheetCodec.encode(copy)).isEqualTo(encoded);
+    }
+
+    @Test
+    void encodeTotalsHasOnlyTotalSlots() {
+        JournalSheet sheet = new JournalSheet();
+        sheet.setValue(0, 10);
+        sheet.setTotal(JournalSheet.TK1, 10);
+        sheet.setTotal(JournalSheet.FINAL, 6);
+
+        assertThat(JournalSheetCodec.encodeTotals(sheet)).containsExactly(
+                Map.entry("tk1", 10.0), Map.entry("FINAL", 6.0));
+    }
+}
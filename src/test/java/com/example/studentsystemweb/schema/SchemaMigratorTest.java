@@ -0,0 +1,173 @@
+package com.example.studentsystemweb.schema;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * Миграции на базе «до версионирования»: таблицы V1 с дублями оценок,
+ * неразобранными ключами и статусами посещения в разном регистре.
+ */
+class SchemaMigratorTest {
+
+    @TempDir
+    Path dir;
+
+    private Connection connection;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seedLegacyDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("legacy.db"));
+        jdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+
+        try (Statement st = connection.createStatement()) {
+            for (String sql : SchemaMigrator.MIGRATIONS.get(0).statements()) st.execute(sql);
+        }
+
+        jdbc.update("INSERT INTO students(id, fullname, group_name) VALUES (1, 'Иванов Иван', 'A'), "
+                + "(2, 'Петров Пётр', 'A'), (3, 'Сидоров Сидор', NULL)");
+
+        // Дубли по ключу; строка 2 совпадает с 1 только после чистки пробелов и NBSP
+        grade(1, 1, "Математика", "week1_lecture", 50);
+        grade(2, 1, " Математика\u00A0", "week1_lecture ", 90);
+        grade(3, 1, "Математика", "FINAL", 80);
+        grade(4, 1, "Математика", "dopusk", 75);
+        grade(5, 1, "Математика", "week2_lecture", -1);
+        grade(6, 1, "Математика", "week3_lecture", -1);
+        grade(7, 2, "Математика", "FINAL", 60);
+        grade(8, 2, "Математика", "FINAL", 65);
+        grade(9, 2, "Физика", "week1_lab", 30);
+
+        attendance(1, "present");
+        attendance(1, "Present ");
+        attendance(1, "Присутствовал");
+        attendance(1, "absent");
+        attendance(1, "Н");
+        attendance(2, "ABSENT");
+        attendance(2, "был");
+        attendance(2, "опоздал");
+        attendance(3, "present");
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void appliesAllMigrationsOnceAndRecordsVersions() throws SQLException {
+        assertThat(SchemaMigrator.migrate(connection)).isEqualTo(SchemaMigrator.latestVersion());
+        assertThat(jdbc.queryForList("SELECT version FROM schema_version ORDER BY version", Integer.class))
+                .containsExactly(1, 2, 3, 4, 5);
+
+        assertThat(SchemaMigrator.migrate(connection)).isZero();
+    }
+
+    @Test
+    void v2NormalizesKeysAndKeepsLatestRowPerKey() throws SQLException {
+        SchemaMigrator.migrate(connection);
+
+        assertThat(grades()).containsExactly(
+                Map.of("id", 2, "student_id", 1, "subject", "Математика", "work_type", "week1_lecture", "grade", 90.0),
+                Map.of("id", 3, "student_id", 1, "subject", "Математика", "work_type", "FINAL", "grade", 80.0),
+                Map.of("id", 4, "student_id", 1, "subject", "Математика", "work_type", "dopusk", "grade", 75.0),
+                Map.of("id", 5, "student_id", 1, "subject", "Математика", "work_type", "week2_lecture", "grade", -1.0),
+                Map.of("id", 6, "student_id", 1, "subject", "Математика", "work_type", "week3_lecture", "grade", -1.0),
+                Map.of("id", 8, "student_id", 2, "subject", "Математика", "work_type", "FINAL", "grade", 65.0),
+                Map.of("id", 9, "student_id", 2, "subject", "Физика", "work_type", "week1_lab", "grade", 30.0));
+
+        assertThatThrownBy(() -> grade(10, 2, "Физика", "week1_lab", 40))
+                .hasMessageContaining("UNIQUE");
+    }
+
+    @Test
+    void v4NormalizesStatusesAndBuildsCounters() throws SQLException {
+        SchemaMigrator.migrate(connection);
+
+        assertThat(jdbc.queryForList("SELECT status FROM attendance ORDER BY id", String.class))
+                .containsExactly("present", "present", "present", "absent", "absent",
+                        "absent", "present", "опоздал", "present");
+
+        assertThat(counters(1)).isEqualTo(List.of(3, 2));
+        assertThat(counters(2)).isEqualTo(List.of(1, 1));
+        assertThat(counters(3)).isEqualTo(List.of(1, 0));
+    }
+
+    @Test
+    void v4TriggersFollowAttendanceChanges() throws SQLException {
+        SchemaMigrator.migrate(connection);
+
+        attendance(2, "absent");
+        assertThat(counters(2)).isEqualTo(List.of(1, 2));
+
+        jdbc.update("UPDATE attendance SET status = 'present' WHERE student_id = 1 AND status = 'absent'");
+        assertThat(counters(1)).isEqualTo(List.of(5, 0));
+
+        jdbc.update("UPDATE attendance SET student_id = 3 WHERE student_id = 2 AND status = 'present'");
+        assertThat(counters(2)).isEqualTo(List.of(0, 2));
+        assertThat(counters(3)).isEqualTo(List.of(2, 0));
+
+        jdbc.update("DELETE FROM attendance WHERE student_id = 3 AND status = 'present'");
+        assertThat(counters(3)).isEqualTo(List.of(0, 0));
+
+        jdbc.update("DELETE FROM students WHERE id = 1");
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM attendance_counters WHERE student_id = 1", Integer.class))
+                .isZero();
+    }
+
+    @Test
+    void v5BackfillsOneFinalsRowPerSheet() throws SQLException {
+        SchemaMigrator.migrate(connection);
+
+        List<Map<String, Object>> rows = jdbc.queryForList(
+                "SELECT student_id, subject, final, dopusk, absences FROM finals ORDER BY student_id, subject");
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0)).containsEntry("student_id", 1).containsEntry("subject", "Математика")
+                .containsEntry("final", 80.0).containsEntry("dopusk", 75.0).containsEntry("absences", 2);
+        assertThat(rows.get(1)).containsEntry("student_id", 2).containsEntry("subject", "Математика")
+                .containsEntry("final", 65.0).containsEntry("dopusk", null).containsEntry("absences", 0);
+        // лист без FINAL — NULL, досчитывает TotalsRecalcQueue
+        assertThat(rows.get(2)).containsEntry("student_id", 2).containsEntry("subject", "Физика")
+                .containsEntry("final", null).containsEntry("absences", 0);
+
+        jdbc.update("DELETE FROM students WHERE id = 2");
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM finals WHERE student_id = 2", Integer.class)).isZero();
+    }
+
+    // ================= HELPERS =================
+
+    private void grade(int id, int studentId, String subject, String workType, double grade) {
+        jdbc.update("INSERT INTO grades(id, student_id, subject, work_type, grade) VALUES (?, ?, ?, ?, ?)",
+                id, studentId, subject, workType, grade);
+    }
+
+    private void attendance(int studentId, String status) {
+        jdbc.update("INSERT INTO attendance(student_id, date, subject, status) VALUES (?, '2024-09-01', 'Математика', ?)",
+                studentId, status);
+    }
+
+    private List<Map<String, Object>> grades() {
+        return jdbc.queryForList("SELECT id, student_id, subject, work_type, grade FROM grades ORDER BY id");
+    }
+
+    private List<Integer> counters(int studentId) {
+        return jdbc.queryForObject("SELECT present, absent FROM attendance_counters WHERE student_id = ?",
+                (rs, n) -> List.of(rs.getInt(1), rs.getInt(2)), studentId);
+    }
+}
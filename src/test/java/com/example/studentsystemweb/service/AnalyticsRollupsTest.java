@@ -0,0 +1,180 @@
+package com.example.studentsystemweb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import com.example.studentsystemweb.event.GradesChangedEvent;
+import com.example.studentsystemweb.event.StudentsChangedEvent;
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.model.SubjectFinal;
+import com.example.studentsystemweb.repository.AttendanceRepository;
+import com.example.studentsystemweb.repository.FinalsRepository;
+import com.example.studentsystemweb.repository.StudentRepository;
+
+/**
+ * Состояние после событий должно совпадать со сборкой с нуля по тем же данным.
+ * Репозитории — заглушки поверх списков в памяти.
+ */
+class AnalyticsRollupsTest {
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final FinalsRepository finalsRepository = mock(FinalsRepository.class);
+    private final AttendanceRepository attendanceRepository = mock(AttendanceRepository.class);
+
+    // «таблицы»: студенты по id и finals по (студент, предмет)
+    private final Map<Integer, Student> students = new TreeMap<>();
+    private final Map<Integer, Map<String, SubjectFinal>> finals = new TreeMap<>();
+
+    private GroupRollups groups;
+    private AnalyticsRollups rollups;
+
+    @BeforeEach
+    void seed() {
+        when(studentRepository.findAll()).thenAnswer(inv -> new ArrayList<>(students.values()));
+        when(studentRepository.findById(anyInt())).thenAnswer(inv -> {
+            Student s = students.get(inv.<Integer>getArgument(0));
+            if (s == null) throw new EmptyResultDataAccessException(1);
+            return s;
+        });
+        when(finalsRepository.findAll()).thenAnswer(inv -> {
+            List<SubjectFinal> all = new ArrayList<>();
+            for (Map<String, SubjectFinal> st : finals.values()) all.addAll(st.values());
+            return all;
+        });
+        when(finalsRepository.findByStudent(anyInt())).thenAnswer(inv ->
+                new ArrayList<>(finals.getOrDefault(inv.<Integer>getArgument(0), Map.of()).values()));
+        when(finalsRepository.find(anyInt(), anyString())).thenAnswer(inv ->
+                finals.getOrDefault(inv.<Integer>getArgument(0), Map.of()).get(inv.<String>getArgument(1)));
+        when(attendanceRepository.absentLeaders(5)).thenReturn(List.of());
+
+        student(1, "ИС-21");
+        student(2, "ИС-21");
+        student(3, "ИС-22");
+        student(4, null);
+        fin(1, "Математика", 80.0, 0);
+        fin(1, "Физика", 90.0, 2);
+        fin(2, "Математика", 45.0, 1);
+        fin(2, "Физика", null, 0);      // лист без FINAL — у студента нет среднего
+        fin(3, "Математика", 100.0, 3);
+    }
+
+    @Test
+    void buildAggregatesFinals() {
+        AnalyticsSnapshot s = rebuilt();
+
+        assertThat(s.hasFinals()).isTrue();
+        assertThat(s.studentsWithFinals()).isEqualTo(2);
+        assertThat(s.overallAverage()).isEqualTo(92.5);           // (85 + 100) / 2
+        assertThat(s.finalAverages().keySet()).containsExactly(1, 2, 3, 4);
+        assertThat(s.finalAverages().values()).containsExactly(85.0, null, 100.0, null);
+        assertThat(s.subjectsLabels()).containsExactly("Математика", "Физика");
+        assertThat(s.subjectsValues()).containsExactly(75.0, 90.0);
+        assertThat(s.pieData()).containsExactly(0, 0, 1, 1);
+        assertThat(s.histValues()).containsExactly(0, 0, 0, 0, 1, 1);
+        assertThat(s.topStudents()).extracting(r -> r.get("finalScore")).containsExactly(100.0, 85.0);
+        assertThat(s.lowStudents()).extracting(r -> r.get("finalScore")).containsExactly(85.0, 100.0);
+    }
+
+    @Test
+    void eventsPatchStateToMatchARebuild() {
+        start();
+
+        // студент 2 получает FINAL по физике — теперь у него есть средний
+        fin(2, "Физика", 55.0, 0);
+        publish(finalChanged(2, "Физика"));
+
+        // студент 1 теряет балл по математике
+        fin(1, "Математика", 60.0, 0);
+        publish(finalChanged(1, "Математика"));
+
+        // событие без FINAL ничего не перечитывает
+        publish(new GradesChangedEvent(3, "Математика", Map.of("tk1", 70.0)));
+
+        // удаление: строки finals уходят вместе со студентом (триггер V5)
+        students.remove(3);
+        finals.remove(3);
+        publish(StudentsChangedEvent.deleted(3));
+
+        Student added = student(5, "ИС-22");
+        publish(StudentsChangedEvent.added(List.of(added)));
+        fin(5, "Математика", 70.0, 0);
+        publish(finalChanged(5, "Математика"));
+
+        assertThat(rollups.snapshot()).isEqualTo(rebuilt());
+        assertThat(rollups.getStudentCount()).isEqualTo(4);
+        assertThat(rollups.getRefreshes()).isEqualTo(3);
+    }
+
+    @Test
+    void deletingTheLastStudentOfASubjectDropsTheSubject() {
+        start();
+
+        fin(4, "Химия", 70.0, 0);
+        publish(finalChanged(4, "Химия"));
+        assertThat(rollups.snapshot().subjectsLabels()).containsExactly("Математика", "Физика", "Химия");
+
+        students.remove(4);
+        finals.remove(4);
+        publish(StudentsChangedEvent.deleted(4));
+
+        AnalyticsSnapshot s = rollups.snapshot();
+        assertThat(s.subjectsLabels()).containsExactly("Математика", "Физика");
+        assertThat(s).isEqualTo(rebuilt());
+    }
+
+    // ================= HELPERS =================
+
+    private void start() {
+        groups = new GroupRollups(studentRepository, finalsRepository);
+        groups.build();
+        rollups = new AnalyticsRollups(studentRepository, finalsRepository, attendanceRepository, groups);
+        rollups.build();
+    }
+
+    // Снимок свежей сборки по текущим «таблицам»
+    private AnalyticsSnapshot rebuilt() {
+        GroupRollups g = new GroupRollups(studentRepository, finalsRepository);
+        g.build();
+        AnalyticsRollups r = new AnalyticsRollups(studentRepository, finalsRepository, attendanceRepository, g);
+        r.build();
+        return r.snapshot();
+    }
+
+    // Как после коммита: оба слушателя получают событие
+    private void publish(GradesChangedEvent event) {
+        groups.onGradesChanged(event);
+        rollups.onGradesChanged(event);
+    }
+
+    private void publish(StudentsChangedEvent event) {
+        groups.onStudentsChanged(event);
+        rollups.onStudentsChanged(event);
+    }
+
+    private Student student(int id, String group) {
+        Student s = new Student(id, "Студент " + id, group);
+        students.put(id, s);
+        return s;
+    }
+
+    private void fin(int studentId, String subject, Double finalScore, int absences) {
+        finals.computeIfAbsent(studentId, k -> new TreeMap<>())
+                .put(subject, new SubjectFinal(studentId, subject, finalScore, null, absences));
+    }
+
+    private static GradesChangedEvent finalChanged(int studentId, String subject) {
+        return new GradesChangedEvent(studentId, subject, Map.of("FINAL", 0.0));
+    }
+}
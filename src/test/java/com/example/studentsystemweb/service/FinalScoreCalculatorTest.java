@@ -0,0 +1,114 @@
+package com.example.studentsystemweb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.studentsystemweb.model.JournalSheet;
+
+class FinalScoreCalculatorTest {
+
+    private final FinalScoreCalculator calculator = new FinalScoreCalculator();
+
+    @Test
+    void appliesTheFormulaChain() {
+        JournalSheet sheet = filled(80, 90, 90, 70);
+
+        calculator.score(sheet);
+
+        // tk = 80; r = 80*0.6 + 90*0.4 = 84; FINAL = 84*0.6 + 70*0.4 = 78.4
+        assertTotals(sheet, 80, 80, 84, 84, 84, 78.4);
+    }
+
+    @Test
+    void excusedAndUnmarkedNegativeCellsAreSkipped() {
+        JournalSheet sheet = filled(80, 90, 90, 70);
+        sheet.setValue(JournalSheet.cell(1, 0), 0);
+        sheet.setFlag(JournalSheet.cell(1, 0), (byte) 2); // Н.П
+        sheet.setValue(JournalSheet.cell(3, 1), -1);       // без флага
+
+        calculator.score(sheet);
+
+        assertTotals(sheet, 80, 80, 84, 84, 84, 78.4);
+    }
+
+    @Test
+    void absenceCountsAsZero() {
+        JournalSheet sheet = filled(80, 90, 90, 70);
+        for (int t = 0; t < JournalSheet.TYPES.length; t++) {
+            sheet.setFlag(JournalSheet.cell(2, t), (byte) 1); // Н
+        }
+
+        calculator.score(sheet);
+
+        // tk1 = 80*6/7 = 68.571..; r1 = 77.142..; dopusk = 80.571..; FINAL = 76.342..
+        assertTotals(sheet, 68.57, 80, 77.14, 84, 80.57, 76.34);
+    }
+
+    @Test
+    void flaggedOrNegativeExamIsZero() {
+        JournalSheet sheet = filled(80, 90, -2, 70);
+        sheet.setExamFlag(JournalSheet.EXAM, (byte) 1);
+
+        calculator.score(sheet);
+
+        // r2 = 80*0.6 = 48; dopusk = (84 + 48) / 2 = 66; FINAL = 66*0.6 = 39.6
+        assertTotals(sheet, 80, 80, 84, 48, 66, 39.6);
+    }
+
+    @Test
+    void emptySheetScoresZero() {
+        JournalSheet sheet = new JournalSheet();
+
+        calculator.score(sheet);
+
+        assertTotals(sheet, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    void batchMatchesSingleSheet() {
+        // пустой лист между заполненными — рабочие массивы пакета не протекают между листами
+        List<JournalSheet> single = sheets();
+        List<JournalSheet> batch = sheets();
+
+        for (JournalSheet s : single) calculator.score(s);
+        calculator.scoreAll(batch);
+
+        for (int i = 0; i < single.size(); i++) {
+            assertThat(totals(batch.get(i))).isEqualTo(totals(single.get(i)));
+        }
+    }
+
+    // ================= HELPERS =================
+
+    private static List<JournalSheet> sheets() {
+        return List.of(filled(80, 90, 90, 70), new JournalSheet(), filled(55, 0, 100, 33));
+    }
+
+    private static List<Double> totals(JournalSheet sheet) {
+        Double[] t = new Double[JournalSheet.TOTAL_KEYS.length];
+        for (int i = 0; i < t.length; i++) t[i] = sheet.total(i);
+        return List.of(t);
+    }
+
+    private static JournalSheet filled(double cells, double rk1, double rk2, double exam) {
+        JournalSheet sheet = new JournalSheet();
+        for (int i = 0; i < JournalSheet.CELLS; i++) sheet.setValue(i, cells);
+        sheet.setExam(JournalSheet.RK1, rk1);
+        sheet.setExam(JournalSheet.RK2, rk2);
+        sheet.setExam(JournalSheet.EXAM, exam);
+        return sheet;
+    }
+
+    private static void assertTotals(JournalSheet sheet, double tk1, double tk2, double r1, double r2,
+                                     double dopusk, double fin) {
+        assertThat(sheet.total(JournalSheet.TK1)).isEqualTo(tk1);
+        assertThat(sheet.total(JournalSheet.TK2)).isEqualTo(tk2);
+        assertThat(sheet.total(JournalSheet.R1)).isEqualTo(r1);
+        assertThat(sheet.total(JournalSheet.R2)).isEqualTo(r2);
+        assertThat(sheet.total(JournalSheet.DOPUSK)).isEqualTo(dopusk);
+        assertThat(sheet.total(JournalSheet.FINAL)).isEqualTo(fin);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.studentsystemweb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IContext;
+
+import com.example.studentsystemweb.event.GradesChangedEvent;
+
+class FragmentCacheTest {
+
+    private static final Locale RU = Locale.forLanguageTag("ru");
+
+    private final ITemplateEngine engine = mock(ITemplateEngine.class);
+    private final DataVersion version = new DataVersion();
+
+    // фрагменты, реально отрендеренные движком
+    private final List<String> rendered = new ArrayList<>();
+
+    @BeforeEach
+    void stubEngine() {
+        // HTML = значение "html" из модели; движок вызывается только при промахе
+        when(engine.process(anyString(), anySet(), any(IContext.class))).thenAnswer(inv -> {
+            Set<String> fragment = inv.getArgument(1);
+            IContext ctx = inv.getArgument(2);
+            rendered.add(fragment.iterator().next());
+            return (String) ctx.getVariable("html");
+        });
+    }
+
+    @Test
+    void hitsSkipTheModelAndTheEngine() {
+        FragmentCache cache = new FragmentCache(engine, version, 1_000);
+        AtomicInteger models = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            String html = cache.render("teacher/analytics", "table", "", RU, () -> {
+                models.incrementAndGet();
+                return Map.of("html", "<t>");
+            });
+            assertThat(html).isEqualTo("<t>");
+        }
+        cache.render("teacher/analytics", "table", "group=ИС-21", RU, () -> Map.of("html", "<g>"));
+
+        assertThat(models).hasValue(1);
+        assertThat(rendered).containsExactly("table", "table");
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(cache.getMisses()).isEqualTo(2);
+        assertThat(cache.getChars()).isEqualTo(6);
+    }
+
+    @Test
+    void firstPutOfNewVersionEvictsOlderVersions() {
+        FragmentCache cache = new FragmentCache(engine, version, 1_000);
+
+        render(cache, "a", "aaaa");
+        render(cache, "b", "bb");
+        assertThat(cache.getSize()).isEqualTo(2);
+
+        bump();
+        // пока в новой версии ничего не записано, старые записи лежат, но недостижимы
+        assertThat(cache.getSize()).isEqualTo(2);
+
+        render(cache, "a", "AAA");
+        assertThat(cache.getSize()).isEqualTo(1);
+        assertThat(cache.getChars()).isEqualTo(3);
+        assertThat(cache.getEvictions()).isZero(); // смена версии — не вытеснение по размеру
+
+        render(cache, "b", "BB");
+        assertThat(rendered).containsExactly("a", "b", "a", "b");
+    }
+
+    @Test
+    void renderThatRacedAVersionBumpIsNotStored() {
+        FragmentCache cache = new FragmentCache(engine, version, 1_000);
+
+        // данные меняются, пока фрагмент «a» строит модель; за это время
+        // другой запрос успевает записать «b» уже под новой версией
+        String stale = cache.render("teacher/analytics", "a", "", RU, () -> {
+            bump();
+            render(cache, "b", "new");
+            return Map.of("html", "old");
+        });
+
+        assertThat(stale).isEqualTo("old"); // вызывающий получает свой рендер
+        assertThat(cache.getSize()).isEqualTo(1);
+        assertThat(cache.getChars()).isEqualTo(3);
+
+        render(cache, "a", "fresh");
+        assertThat(rendered).containsExactly("b", "a", "a");
+    }
+
+    @Test
+    void evictsLeastRecentlyReadWhenOverBudget() {
+        FragmentCache cache = new FragmentCache(engine, version, 10);
+
+        render(cache, "a", "aaaa");
+        render(cache, "b", "bbbb");
+        render(cache, "a", "----"); // попадание: «a» становится свежей
+        render(cache, "c", "cccc"); // 12 > 10 — уходит «b»
+
+        assertThat(cache.getEvictions()).isEqualTo(1);
+        assertThat(cache.getChars()).isEqualTo(8);
+
+        render(cache, "a", "----");
+        render(cache, "b", "bbbb");
+        assertThat(rendered).containsExactly("a", "b", "c", "b");
+
+        // фрагмент больше всего бюджета не кешируется и ничего не вытесняет
+        render(cache, "huge", "x".repeat(11));
+        render(cache, "huge", "x".repeat(11));
+        assertThat(rendered).endsWith("huge", "huge");
+        assertThat(cache.getEvictions()).isEqualTo(2);
+    }
+
+    // ================= HELPERS =================
+
+    private static void render(FragmentCache cache, String fragment, String html) {
+        cache.render("teacher/analytics", fragment, "", RU, () -> Map.of("html", html));
+    }
+
+    private void bump() {
+        version.onGradesChanged(new GradesChangedEvent(1, "Математика", Map.of("FINAL", 80.0)));
+    }
+}
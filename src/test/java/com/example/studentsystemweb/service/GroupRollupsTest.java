@@ -0,0 +1,197 @@
+package com.example.studentsystemweb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import com.example.studentsystemweb.event.GradesChangedEvent;
+import com.example.studentsystemweb.event.StudentsChangedEvent;
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.model.SubjectFinal;
+import com.example.studentsystemweb.repository.FinalsRepository;
+import com.example.studentsystemweb.repository.StudentRepository;
+import com.example.studentsystemweb.service.GroupRollups.GroupStats;
+
+class GroupRollupsTest {
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final FinalsRepository finalsRepository = mock(FinalsRepository.class);
+
+    // «таблицы»: студенты по id и finals по (студент, предмет)
+    private final Map<Integer, Student> students = new TreeMap<>();
+    private final Map<Integer, Map<String, SubjectFinal>> finals = new TreeMap<>();
+
+    // если задано — следующее чтение finals студента возвращает снятые данные и ждёт разрешения
+    private final AtomicReference<CountDownLatch> hold = new AtomicReference<>();
+    private final CountDownLatch holding = new CountDownLatch(1);
+
+    private GroupRollups rollups;
+
+    @BeforeEach
+    void seed() {
+        when(studentRepository.findAll()).thenAnswer(inv -> new ArrayList<>(students.values()));
+        when(studentRepository.findById(anyInt())).thenAnswer(inv -> {
+            Student s = students.get(inv.<Integer>getArgument(0));
+            if (s == null) throw new EmptyResultDataAccessException(1);
+            return s;
+        });
+        when(finalsRepository.findAll()).thenAnswer(inv -> {
+            List<SubjectFinal> all = new ArrayList<>();
+            for (Map<String, SubjectFinal> st : finals.values()) all.addAll(st.values());
+            return all;
+        });
+        when(finalsRepository.findByStudent(anyInt())).thenAnswer(inv -> {
+            List<SubjectFinal> read = new ArrayList<>(finals.getOrDefault(inv.<Integer>getArgument(0), Map.of()).values());
+            CountDownLatch release = hold.getAndSet(null);
+            if (release != null) {
+                holding.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return read;
+        });
+
+        student(1, "ИС-21");
+        student(2, "ИС-21");
+        student(3, "ИС-22");
+        student(4, null);
+        fin(1, "Математика", 80.0, 1);
+        fin(1, "Физика", 90.0, 2);
+        fin(2, "Математика", 60.0, 0);
+        fin(2, "Физика", null, 3);      // не все итоги — в average не входит, в averageAll — по 60
+        fin(3, "Математика", 100.0, 0);
+
+        rollups = new GroupRollups(studentRepository, finalsRepository);
+        rollups.build();
+    }
+
+    @Test
+    void buildGroupsStudentsByGroup() {
+        assertThat(rollups.groups()).containsExactly(
+                new GroupStats(null, 1, 0, null, 0, 0),
+                new GroupStats("ИС-21", 2, 1, 85.0, (85.0 + 60.0) / 2, 6),
+                new GroupStats("ИС-22", 1, 1, 100.0, 100.0, 0));
+        assertThat(rollups.averagesByFirstStudent().keySet()).containsExactly("ИС-21", "ИС-22", null);
+    }
+
+    @Test
+    void addRemoveAndGradeChangesMatchARebuild() {
+        // новый студент без итогов, затем его первый FINAL
+        Student added = student(5, "ИС-23");
+        rollups.onStudentsChanged(StudentsChangedEvent.added(List.of(added)));
+        assertThat(rollups.group("ИС-23")).isEqualTo(new GroupStats("ИС-23", 1, 0, null, 0, 0));
+
+        fin(5, "Математика", 70.0, 4);
+        rollups.onGradesChanged(finalChanged(5));
+
+        // у студента 2 появился FINAL по физике
+        fin(2, "Физика", 50.0, 3);
+        rollups.onGradesChanged(finalChanged(2));
+
+        // событие без FINAL не перечитывает finals
+        fin(1, "Математика", 10.0, 1);
+        rollups.onGradesChanged(new GradesChangedEvent(1, "Математика", Map.of("tk1", 10.0)));
+        fin(1, "Математика", 80.0, 1);
+
+        // удаление последнего студента группы убирает группу
+        remove(3);
+        assertThat(rollups.group("ИС-22")).isNull();
+
+        assertThat(rollups.groups()).isEqualTo(rebuilt().groups());
+        assertThat(rollups.averagesByFirstStudent()).isEqualTo(rebuilt().averagesByFirstStudent());
+        assertThat(rollups.getStudentCount()).isEqualTo(4);
+        assertThat(rollups.getGroupCount()).isEqualTo(3);
+        assertThat(rollups.getRefreshes()).isEqualTo(2);
+    }
+
+    @Test
+    void gradeEventForAStudentMissingFromTheRollupLooksUpTheGroup() {
+        // студент появился в БД, а StudentsChangedEvent ещё не дошёл
+        student(6, "ИС-22");
+        fin(6, "Математика", 40.0, 0);
+        rollups.onGradesChanged(finalChanged(6));
+
+        assertThat(rollups.group("ИС-22")).isEqualTo(new GroupStats("ИС-22", 2, 2, 70.0, 70.0, 0));
+
+        // а удалённого уже нет — событие пропускается
+        rollups.onGradesChanged(finalChanged(42));
+        assertThat(rollups.getStudentCount()).isEqualTo(5);
+    }
+
+    @Test
+    void staleReadDoesNotOverwriteALaterOne() throws Exception {
+        // первое чтение видит старый FINAL и задерживается до применения второго
+        CountDownLatch release = new CountDownLatch(1);
+        hold.set(release);
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> rollups.onGradesChanged(finalChanged(3)));
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        fin(3, "Математика", 50.0, 2);
+        rollups.onGradesChanged(finalChanged(3));
+
+        release.countDown();
+        slow.get(5, TimeUnit.SECONDS);
+
+        assertThat(rollups.group("ИС-22")).isEqualTo(new GroupStats("ИС-22", 1, 1, 50.0, 50.0, 2));
+        assertThat(rollups.getRefreshes()).isEqualTo(1);
+    }
+
+    @Test
+    void studentDeletedDuringReadStaysDeleted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        hold.set(release);
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> rollups.onGradesChanged(finalChanged(3)));
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        remove(3);
+
+        release.countDown();
+        slow.get(5, TimeUnit.SECONDS);
+
+        assertThat(rollups.group("ИС-22")).isNull();
+        assertThat(rollups.groups()).isEqualTo(rebuilt().groups());
+    }
+
+    // ================= HELPERS =================
+
+    private GroupRollups rebuilt() {
+        GroupRollups fresh = new GroupRollups(studentRepository, finalsRepository);
+        fresh.build();
+        return fresh;
+    }
+
+    // строки finals уходят вместе со студентом (триггер V5)
+    private void remove(int id) {
+        students.remove(id);
+        finals.remove(id);
+        rollups.onStudentsChanged(StudentsChangedEvent.deleted(id));
+    }
+
+    private Student student(int id, String group) {
+        Student s = new Student(id, "Студент " + id, group);
+        students.put(id, s);
+        return s;
+    }
+
+    private void fin(int studentId, String subject, Double finalScore, int absences) {
+        finals.computeIfAbsent(studentId, k -> new TreeMap<>())
+                .put(subject, new SubjectFinal(studentId, subject, finalScore, null, absences));
+    }
+
+    private static GradesChangedEvent finalChanged(int studentId) {
+        return new GradesChangedEvent(studentId, "Математика", Map.of("FINAL", 0.0));
+    }
+}
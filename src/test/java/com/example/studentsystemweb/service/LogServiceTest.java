@@ -0,0 +1,142 @@
+package com.example.studentsystemweb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<LogService> started = new ArrayList<>();
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        for (LogService s : started) s.destroy();
+    }
+
+    @Test
+    void ringKeepsOnlyTheNewestEntries() {
+        LogService logs = start(3, 1 << 20); // ёмкость округляется до 4
+
+        for (int i = 1; i <= 6; i++) logs.add(i % 2 == 0 ? "admin" : "teacher", "запись " + i);
+
+        assertThat(logs.getCapacity()).isEqualTo(4);
+        assertThat(logs.getTotal()).isEqualTo(6);
+        assertThat(messages(logs.recent(10))).containsExactly("запись 3", "запись 4", "запись 5", "запись 6");
+        assertThat(messages(logs.recent(2))).containsExactly("запись 5", "запись 6");
+        assertThat(messages(logs.find(null, null, "admin", 10))).containsExactly("запись 4", "запись 6");
+        assertThat(logs.find(null, LocalDateTime.now().minusDays(1), null, 10)).isEmpty();
+    }
+
+    @Test
+    void concurrentWritersNeverSurfaceOverwrittenSlots() throws Exception {
+        LogService logs = start(64, 1 << 20);
+        int threads = 4;
+        int perThread = 2_000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            String user = "u" + t;
+            pool.execute(() -> {
+                try {
+                    go.await();
+                    for (int i = 0; i < perThread; i++) logs.add(user, user + ":" + i);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // чтение во время записи: номера строго растут, пропуски — только перезаписанные ячейки
+        go.countDown();
+        for (int n = 0; n < 200; n++) {
+            List<LogEntry> recent = logs.recent(64);
+            for (int i = 1; i < recent.size(); i++) {
+                assertThat(recent.get(i).seq()).isGreaterThan(recent.get(i - 1).seq());
+            }
+        }
+
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        List<LogEntry> last = logs.recent(64);
+        assertThat(logs.getTotal()).isEqualTo(threads * perThread);
+        assertThat(last).hasSize(64);
+        assertThat(last.get(63).seq()).isEqualTo(threads * perThread - 1);
+    }
+
+    @Test
+    void restoresTailFromFileAfterRestart() throws Exception {
+        // очередь записи размером с буфер: 8 вмещает все шесть записей
+        LogService first = new LogService(8, dir.resolve("activity.log").toString(), 1 << 20, 3);
+        first.afterPropertiesSet();
+        first.add("admin", "первая");
+        first.add(null, "многострочная\nс\tтабом и \\ слешем");
+        for (int i = 1; i <= 4; i++) first.add("teacher", "запись " + i);
+        first.destroy(); // досписывает очередь в файл
+
+        assertThat(first.getWritten()).isEqualTo(6);
+
+        LogService second = start(4, 1 << 20);
+        List<LogEntry> restored = second.recent(10);
+
+        // в буфер возвращается только хвост размером с буфер
+        assertThat(messages(restored)).containsExactly("запись 1", "запись 2", "запись 3", "запись 4");
+        assertThat(restored.get(0).user()).isEqualTo("teacher");
+
+        LogService wide = start(8, 1 << 20);
+        List<LogEntry> all = wide.recent(10);
+        assertThat(all).hasSize(6);
+        assertThat(all.get(0).user()).isEqualTo("admin");
+        assertThat(all.get(1).user()).isNull();
+        assertThat(all.get(1).message()).isEqualTo("многострочная\nс\tтабом и \\ слешем");
+    }
+
+    @Test
+    void rotatesBySizeAndRestoresFromPreviousFile() throws Exception {
+        // каждая пачка больше порога — следующая запись начинает новый файл
+        LogService first = new LogService(8, dir.resolve("activity.log").toString(), 1, 2);
+        first.afterPropertiesSet();
+        first.add("admin", "до ротации");
+        first.destroy();
+
+        LogService second = new LogService(8, dir.resolve("activity.log").toString(), 1, 2);
+        second.afterPropertiesSet();
+        second.add("admin", "после ротации");
+        second.destroy();
+
+        assertThat(Files.readString(dir.resolve("activity.log.1"))).contains("до ротации");
+        assertThat(Files.readString(dir.resolve("activity.log"))).contains("после ротации");
+
+        LogService third = start(8, 1);
+        assertThat(messages(third.recent(10))).containsExactly("до ротации", "после ротации");
+    }
+
+    // ================= HELPERS =================
+
+    private LogService start(int capacity, long maxBytes) {
+        LogService s = new LogService(capacity, dir.resolve("activity.log").toString(), maxBytes, 2);
+        s.afterPropertiesSet();
+        started.add(s);
+        return s;
+    }
+
+    private static List<String> messages(List<LogEntry> entries) {
+        return entries.stream().map(LogEntry::message).toList();
+    }
+}
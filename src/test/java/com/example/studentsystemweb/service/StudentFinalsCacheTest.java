@@ -0,0 +1,86 @@
+package com.example.studentsystemweb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.studentsystemweb.event.GradesChangedEvent;
+import com.example.studentsystemweb.model.SubjectFinal;
+
+class StudentFinalsCacheTest {
+
+    private final StudentFinalsCache cache = new StudentFinalsCache(2);
+
+    @Test
+    void loadsOnceThenHits() {
+        AtomicInteger loads = new AtomicInteger();
+
+        StudentFinals first = cache.get(1, () -> { loads.incrementAndGet(); return finals(1, 70.0); });
+        StudentFinals second = cache.get(1, () -> { loads.incrementAndGet(); return finals(1, 0.0); });
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void gradesChangeDropsOnlyThatStudent() {
+        cache.get(1, () -> finals(1, 70.0));
+        cache.get(2, () -> finals(2, 80.0));
+
+        cache.onGradesChanged(new GradesChangedEvent(1, "Математика", Map.of("FINAL", 75.0)));
+
+        assertThat(cache.peek(1)).isNull();
+        assertThat(cache.peek(2)).isNotNull();
+    }
+
+    @Test
+    void valueLoadedAcrossInvalidationIsNotCached() {
+        StudentFinals stale = cache.get(1, () -> {
+            cache.invalidate(1); // оценки поменялись, пока читали
+            return finals(1, 70.0);
+        });
+
+        assertThat(stale.average()).isEqualTo(70.0);
+        assertThat(cache.peek(1)).isNull();
+
+        long generation = cache.generation();
+        cache.invalidate(2);
+        cache.put(1, finals(1, 70.0), generation);
+        assertThat(cache.peek(1)).isNull();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        cache.get(1, () -> finals(1, 70.0));
+        cache.get(2, () -> finals(2, 80.0));
+        cache.get(1, () -> finals(1, 0.0)); // 1 — последний использованный
+        cache.get(3, () -> finals(3, 90.0));
+
+        assertThat(cache.getSize()).isEqualTo(2);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+        assertThat(cache.peek(2)).isNull();
+        assertThat(cache.peek(1)).isNotNull();
+        assertThat(cache.peek(3)).isNotNull();
+    }
+
+    @Test
+    void finalsScoreMissingSheetsAndAverage() {
+        StudentFinals f = StudentFinals.of(1, List.of(
+                new SubjectFinal(1, "Математика", 70.0, 60.0, 0),
+                new SubjectFinal(1, "Физика", null, null, 1)), subject -> 55.555);
+
+        assertThat(f.subjectAverages()).containsExactly(Map.entry("Математика", 70.0), Map.entry("Физика", 55.555));
+        assertThat(f.average()).isEqualTo(62.78);
+        assertThat(f.subjects()).containsExactly("Математика", "Физика");
+    }
+
+    private static StudentFinals finals(int studentId, double fin) {
+        return StudentFinals.of(studentId, List.of(new SubjectFinal(studentId, "Математика", fin, null, 0)), s -> 0);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.studentsystemweb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.model.User;
+import com.example.studentsystemweb.repository.StudentRepository;
+import com.example.studentsystemweb.repository.UserRepository;
+import com.example.studentsystemweb.service.StudentImportService.ImportResult;
+import com.example.studentsystemweb.service.StudentImportService.RowError;
+
+class StudentImportServiceTest {
+
+    private final StudentRepository students = mock(StudentRepository.class);
+    private final UserRepository users = mock(UserRepository.class);
+
+    // что дошло до «базы» — только вызовы без исключения
+    private final List<String> insertedStudents = new ArrayList<>();
+    private final List<String> insertedLogins = new ArrayList<>();
+    private final List<Integer> insertCalls = new ArrayList<>();
+
+    @BeforeEach
+    void stubRepositories() {
+        // строка «Сбой» нарушает ограничение — откатывается вся вставка
+        doAnswer(inv -> {
+            List<Student> batch = inv.getArgument(0);
+            insertCalls.add(batch.size());
+            for (Student s : batch) {
+                if (s.getFullname().equals("Сбой")) throw new DataIntegrityViolationException("CHECK constraint failed");
+            }
+            for (Student s : batch) {
+                insertedStudents.add(s.getFullname());
+                s.setId(insertedStudents.size());
+            }
+            return null;
+        }).when(students).insertAll(anyList());
+
+        doAnswer(inv -> {
+            List<User> batch = inv.getArgument(0);
+            for (User u : batch) insertedLogins.add(u.getLogin());
+            return null;
+        }).when(users).insertAll(anyList());
+
+        when(users.findExistingLogins(anyCollection())).thenAnswer(inv -> {
+            Set<String> taken = new HashSet<>(Set.of("занят"));
+            taken.retainAll(inv.getArgument(0));
+            return taken;
+        });
+    }
+
+    @Test
+    void failedChunkFallsBackRowByRow() throws Exception {
+        ImportResult result = importCsv(3, """
+                fullname;group;login;password
+                Анна;ИС-21;anna;1
+                Сбой;ИС-21;;
+                Борис;ИС-21;занят;1
+                Вера;ИС-22;vera;1
+                Глеб;ИС-22;;
+                """);
+
+        // пачка 1 (Анна, Сбой; Борис — логин занят) откатилась: по одной — Анна, Сбой (ошибка),
+        // Борис (снова отклонён, пустая вставка); пачка 2 (Вера, Глеб) — целиком
+        assertThat(insertCalls).containsExactly(2, 1, 1, 0, 2);
+        assertThat(insertedStudents).containsExactly("Анна", "Вера", "Глеб");
+        assertThat(insertedLogins).containsExactly("anna", "vera");
+
+        assertThat(result.students()).isEqualTo(3);
+        assertThat(result.users()).isEqualTo(2);
+        assertThat(result.failedRows()).isEqualTo(2);
+        // отказы откатившейся пачки не попадают в отчёт дважды
+        assertThat(result.errors()).containsExactly(
+                new RowError(3, "Ошибка записи: CHECK constraint failed"),
+                new RowError(4, "Пользователь с логином 'занят' уже существует"));
+    }
+
+    @Test
+    void validationErrorsSkipRowsWithoutTouchingTheChunk() throws Exception {
+        ImportResult result = importCsv(10, """
+                ФИО,Группа,Логин,Пароль
+                Анна,ИС-21,anna,1
+                ,ИС-21,,
+                Борис,,,
+                Вера,ИС-22,anna,2
+                "Глеб, младший",ИС-22,gleb,
+                Дина,ИС-22,,
+                """);
+
+        assertThat(insertCalls).containsExactly(2);
+        assertThat(insertedStudents).containsExactly("Анна", "Дина");
+        assertThat(result.errors()).extracting(RowError::line).containsExactly(3L, 4L, 5L, 6L);
+        assertThat(result.errorsTruncated()).isFalse();
+    }
+
+    // ================= HELPERS =================
+
+    private ImportResult importCsv(int chunkSize, String csv) throws Exception {
+        PlatformTransactionManager tm = mock(PlatformTransactionManager.class);
+        when(tm.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        StudentImportService service = new StudentImportService(
+                students, users, mock(ApplicationEventPublisher.class), tm, chunkSize);
+
+        return service.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
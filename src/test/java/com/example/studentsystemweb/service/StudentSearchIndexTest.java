@@ -0,0 +1,86 @@
+package com.example.studentsystemweb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.studentsystemweb.event.StudentsChangedEvent;
+import com.example.studentsystemweb.model.Student;
+import com.example.studentsystemweb.repository.StudentRepository;
+
+class StudentSearchIndexTest {
+
+    private StudentSearchIndex index;
+
+    @BeforeEach
+    void build() {
+        StudentRepository repository = mock(StudentRepository.class);
+        when(repository.findAll()).thenReturn(List.of(
+                new Student(1, "Иванов Иван", "ИС-21"),
+                new Student(2, "Петров Иван", "ИС-22"),
+                new Student(3, "Семёнова Анна", "ИС-21"),
+                new Student(4, "Иваненко Олег", null)));
+
+        index = new StudentSearchIndex(repository);
+        index.build();
+    }
+
+    @Test
+    void shortTermsMatchWordPrefixes() {
+        assertThat(ids("ив")).containsExactly(1, 2, 4);
+        assertThat(ids("ан")).containsExactly(3);
+    }
+
+    @Test
+    void longTermsMatchSubstrings() {
+        assertThat(ids("ване")).containsExactly(4);
+        assertThat(ids("ван")).containsExactly(1, 2, 4);
+    }
+
+    @Test
+    void foldsCaseAndYo() {
+        assertThat(ids("СЕМЕН")).containsExactly(3);
+        assertThat(ids("семён")).containsExactly(3);
+    }
+
+    @Test
+    void allTermsMustMatchIncludingGroup() {
+        assertThat(ids("иван ис-21")).containsExactly(1);
+        assertThat(ids("иван 22")).containsExactly(2);
+        assertThat(ids("иван физика")).isEmpty();
+    }
+
+    @Test
+    void ranksPhraseThenNameStartThenRest() {
+        // "иван" как фраза есть у всех троих — дальше по id
+        assertThat(ids("иван")).containsExactly(1, 2, 4);
+        // ФИО начинается с первого слова (1, 4), затем остальные (2)
+        assertThat(ids("ив ив")).containsExactly(1, 4, 2);
+    }
+
+    @Test
+    void respectsLimit() {
+        assertThat(index.search("ив", 2)).hasSize(2);
+        assertThat(index.search("ив", 0)).isEmpty();
+        assertThat(index.search("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void followsStudentChanges() {
+        index.onStudentsChanged(StudentsChangedEvent.added(List.of(new Student(5, "Иванова Мария", "ИС-23"))));
+        index.onStudentsChanged(StudentsChangedEvent.deleted(1));
+
+        assertThat(ids("ивано")).containsExactly(5);
+        assertThat(ids("ис-21")).containsExactly(3);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    private List<Integer> ids(String query) {
+        return index.search(query, 10).stream().map(StudentSearchIndex.Hit::id).toList();
+    }
+}
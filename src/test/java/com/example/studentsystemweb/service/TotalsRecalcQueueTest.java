@@ -0,0 +1,133 @@
+package com.example.studentsystemweb.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.studentsystemweb.model.SheetKey;
+import com.example.studentsystemweb.repository.FinalsRepository;
+
+class TotalsRecalcQueueTest {
+
+    private static final SheetKey A = new SheetKey(1, "Математика");
+    private static final SheetKey B = new SheetKey(2, "Математика");
+    private static final SheetKey BAD = new SheetKey(3, "Физика");
+
+    private final GradingService grading = mock(GradingService.class);
+    // пачки, переданные в recalcTotals (копии: воркер переиспользует список)
+    private final List<List<SheetKey>> calls = new CopyOnWriteArrayList<>();
+
+    private TotalsRecalcQueue queue;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (queue != null) queue.destroy();
+    }
+
+    @Test
+    void coalescesPendingKeysIntoOneBatch() {
+        recalcFailsOn(null);
+        queue = queue(3);
+
+        // воркеры ещё не запущены — всё ждёт в очереди
+        queue.enqueue(1, "Математика");
+        queue.enqueue(1, "Математика");
+        queue.enqueue(2, "Математика");
+        queue.enqueue(1, "Математика");
+
+        assertThat(queue.getQueueDepth()).isEqualTo(2);
+        assertThat(queue.getCoalesced()).isEqualTo(2);
+
+        queue.afterPropertiesSet();
+        await().atMost(Duration.ofSeconds(5)).until(() -> queue.getProcessed() == 2);
+
+        assertThat(calls).containsExactly(List.of(A, B));
+        assertThat(queue.getBatches()).isEqualTo(1);
+        assertThat(queue.getQueueDepth()).isZero();
+
+        // после пересчёта та же пара снова ставится отдельной задачей
+        queue.enqueue(1, "Математика");
+        await().atMost(Duration.ofSeconds(5)).until(() -> queue.getProcessed() == 3);
+        assertThat(calls).containsExactly(List.of(A, B), List.of(A));
+    }
+
+    @Test
+    void failedBatchFallsBackPerKeyThenRetriesAndDrops() {
+        recalcFailsOn(BAD);
+        queue = queue(3);
+
+        queue.enqueue(1, "Математика");
+        queue.enqueue(3, "Физика");
+        queue.enqueue(2, "Математика");
+        queue.afterPropertiesSet();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> queue.getDropped() == 1);
+
+        // пачка откатилась -> по одной: A и B посчитаны, BAD — 3 попытки с повторами и снята
+        assertThat(calls.get(0)).containsExactly(A, BAD, B);
+        assertThat(calls.subList(1, 4)).containsExactly(List.of(A), List.of(BAD), List.of(B));
+        assertThat(calls.subList(4, calls.size())).containsOnly(List.of(BAD)).hasSize(2);
+
+        assertThat(queue.getProcessed()).isEqualTo(2);
+        assertThat(queue.getFailures()).isEqualTo(3);
+        assertThat(queue.getRetries()).isEqualTo(2);
+        assertThat(queue.getRetrying()).isZero();
+        assertThat(queue.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void successfulRetryResetsAttempts() {
+        // первая попытка BAD падает, повтор проходит
+        doAnswer(inv -> {
+            Collection<SheetKey> keys = inv.getArgument(0);
+            calls.add(List.copyOf(keys));
+            if (keys.contains(BAD) && calls.stream().filter(c -> c.contains(BAD)).count() == 1) {
+                throw new IllegalStateException("сбой листа");
+            }
+            return null;
+        }).when(grading).recalcTotals(anyCollection());
+        queue = queue(2);
+
+        queue.afterPropertiesSet();
+        queue.enqueue(3, "Физика");
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> queue.getProcessed() == 1);
+
+        assertThat(queue.getFailures()).isEqualTo(1);
+        assertThat(queue.getRetries()).isEqualTo(1);
+        assertThat(queue.getDropped()).isZero();
+    }
+
+    // ================= HELPERS =================
+
+    private TotalsRecalcQueue queue(int maxAttempts) {
+        PlatformTransactionManager tm = mock(PlatformTransactionManager.class);
+        when(tm.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        // один воркер — пачки детерминированы; короткая задержка повтора
+        return new TotalsRecalcQueue(grading, mock(FinalsRepository.class), tm, 1, 64, maxAttempts, 10);
+    }
+
+    private void recalcFailsOn(SheetKey bad) {
+        doAnswer(inv -> {
+            Collection<SheetKey> keys = inv.getArgument(0);
+            calls.add(List.copyOf(keys));
+            if (bad != null && keys.contains(bad)) throw new IllegalStateException("сбой листа " + bad);
+            return null;
+        }).when(grading).recalcTotals(anyCollection());
+    }
+}